@@ -0,0 +1,47 @@
+// Genera las variantes .br y .gz del build una sola vez, para que el backend
+// las sirva tal cual segun Accept-Encoding en vez de comprimir en cada peticion.
+// Uso: node scripts/precompress.mjs [directorio] (por defecto la salida de ng build)
+import { readdirSync, readFileSync, statSync, writeFileSync } from 'node:fs';
+import { extname, join } from 'node:path';
+import { brotliCompressSync, constants, gzipSync } from 'node:zlib';
+
+const root = process.argv[2] ?? 'dist/tienda-front/browser';
+const extensions = new Set(['.js', '.css', '.html', '.svg', '.ico', '.json', '.txt']);
+// Por debajo de esto la cabecera de compresion se come la ganancia
+const minSize = 1024;
+
+function* files(dir) {
+  for (const name of readdirSync(dir)) {
+    const path = join(dir, name);
+    if (statSync(path).isDirectory()) {
+      yield* files(path);
+    } else if (extensions.has(extname(name))) {
+      yield path;
+    }
+  }
+}
+
+let count = 0;
+for (const path of files(root)) {
+  const source = readFileSync(path);
+  if (source.length < minSize) {
+    continue;
+  }
+  const variants = {
+    '.br': brotliCompressSync(source, {
+      params: {
+        [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+        [constants.BROTLI_PARAM_SIZE_HINT]: source.length,
+      },
+    }),
+    '.gz': gzipSync(source, { level: 9 }),
+  };
+  for (const [suffix, data] of Object.entries(variants)) {
+    // Solo si de verdad ahorra algo (favicon y similares a veces no)
+    if (data.length < source.length) {
+      writeFileSync(path + suffix, data);
+      count++;
+    }
+  }
+}
+console.log(`precompress: ${count} archivos en ${root}`);
@@ -8,4 +8,5 @@ export interface Order {
   shippingAddressId?: number | null;
   createdAt?: string;
   items: OrderItem[];
+  itemCount?: number; // solo en el listado (GET /api/orders no trae los items)
 }
@@ -142,7 +142,18 @@ export class OrdersComponent implements OnInit {
     }
   }
 
-  editOrder(order: Order): void {
+  editOrder(summary: Order): void {
+    // El listado solo trae resumenes: los items se piden al abrir la edicion
+    if (!summary.id) {
+      return;
+    }
+    this.orderService.getById(summary.id).subscribe({
+      next: (order) => this.fillForm(order),
+      error: () => this.snackBar.open('Error al cargar la orden', 'Cerrar', { duration: 3000 })
+    });
+  }
+
+  private fillForm(order: Order): void {
     this.editingId = order.id || null;
     this.itemsArray.clear();
     
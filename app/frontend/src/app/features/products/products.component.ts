@@ -125,7 +125,18 @@ export class ProductsComponent implements OnInit {
     }
   }
 
-  editProduct(product: Product): void {
+  editProduct(summary: Product): void {
+    // El listado no trae la descripcion: se pide el producto completo
+    if (!summary.id) {
+      return;
+    }
+    this.productService.getById(summary.id).subscribe({
+      next: (product) => this.fillForm(product),
+      error: () => this.snackBar.open('Error al cargar el producto', 'Cerrar', { duration: 3000 })
+    });
+  }
+
+  private fillForm(product: Product): void {
     this.editingId = product.id || null;
     this.form.patchValue({
       categoryId: product.category?.id,
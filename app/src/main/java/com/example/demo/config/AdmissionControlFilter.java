@@ -0,0 +1,208 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Control de admision delante del pool de conexiones. Cada clase de endpoint
+ * tiene su limite de concurrencia y un tiempo maximo de espera en cola; ademas
+ * todas comparten un total de peticiones en curso, con prioridad para el checkout.
+ * Si la espera pasa del presupuesto se responde 503 con Retry-After enseguida,
+ * en vez de dejar el hilo esperando una conexion hasta el timeout de Hikari.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    // En orden de prioridad: el primero es el que se atiende antes y el unico que usa la reserva
+    enum EndpointClass {
+        // Crear y modificar ordenes, reservar stock
+        CHECKOUT(32, 2000, 1),
+        // Lecturas de catalogo, usuarios, ordenes y analitica
+        CATALOG(24, 250, 1),
+        // Altas y cambios de catalogo y usuarios, borrados masivos, cargas, recalculos
+        ADMIN(4, 500, 2),
+        // PDFs, correos, exportaciones y streams: largos y se pueden reintentar despues
+        DOCUMENTS(4, 100, 5);
+
+        final int defaultMaxConcurrent;
+        final long defaultMaxWaitMs;
+        final int defaultRetryAfterSeconds;
+
+        EndpointClass(int defaultMaxConcurrent, long defaultMaxWaitMs, int defaultRetryAfterSeconds) {
+            this.defaultMaxConcurrent = defaultMaxConcurrent;
+            this.defaultMaxWaitMs = defaultMaxWaitMs;
+            this.defaultRetryAfterSeconds = defaultRetryAfterSeconds;
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Limits(Semaphore permits, long maxWaitMs, int retryAfterSeconds,
+                          Timer waitTimer, Counter rejected) {}
+
+    private final AdmissionLimiter shared;
+    private final Map<EndpointClass, Limits> limits = new EnumMap<>(EndpointClass.class);
+
+    public AdmissionControlFilter(Environment environment, MeterRegistry registry) {
+        int maxConcurrent = environment.getProperty("app.admission.max-concurrent", Integer.class, 32);
+        int reserved = environment.getProperty("app.admission.checkout-reserved", Integer.class, 4);
+        this.shared = new AdmissionLimiter(maxConcurrent, EndpointClass.values().length, reserved);
+
+        for (EndpointClass type : EndpointClass.values()) {
+            String prefix = "app.admission." + type.key() + ".";
+            int classMax = environment.getProperty(prefix + "max-concurrent", Integer.class, type.defaultMaxConcurrent);
+            Semaphore permits = new Semaphore(classMax, true);
+            limits.put(type, new Limits(permits,
+                    environment.getProperty(prefix + "max-wait-ms", Long.class, type.defaultMaxWaitMs),
+                    environment.getProperty(prefix + "retry-after-seconds", Integer.class, type.defaultRetryAfterSeconds),
+                    Timer.builder("http.admission.wait")
+                            .description("Espera en cola antes de entrar al controller")
+                            .tag("class", type.key())
+                            .register(registry),
+                    Counter.builder("http.admission.rejected")
+                            .description("Peticiones rechazadas con 503 por exceder la espera")
+                            .tag("class", type.key())
+                            .register(registry)));
+            // Se espera primero el cupo de la clase y despues el compartido: la cola es la suma de ambas
+            Gauge.builder("http.admission.queued", permits,
+                            p -> p.getQueueLength() + shared.waiting(type.ordinal()))
+                    .description("Peticiones esperando cupo")
+                    .tag("class", type.key())
+                    .register(registry);
+            Gauge.builder("http.admission.active", permits, p -> classMax - p.availablePermits())
+                    .description("Peticiones en curso")
+                    .tag("class", type.key())
+                    .register(registry);
+        }
+    }
+
+    static EndpointClass classify(String method, String path) {
+        boolean read = method.equals("GET") || method.equals("HEAD");
+        if (path.startsWith("/api/orders/receipts") || path.endsWith("/pdf") || path.endsWith("/email")
+                || path.equals("/api/orders/notify") || path.endsWith("/stream") || path.endsWith("/export")) {
+            return EndpointClass.DOCUMENTS;
+        }
+        if (read) {
+            return EndpointClass.CATALOG;
+        }
+        if ((path.equals("/api/orders") || path.startsWith("/api/orders/"))
+                && !path.startsWith("/api/orders/bulk") && !path.equals("/api/orders/archive")) {
+            return EndpointClass.CHECKOUT;
+        }
+        if (path.startsWith("/api/inventory/reservations")) {
+            return EndpointClass.CHECKOUT;
+        }
+        return EndpointClass.ADMIN;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Preflight de CORS, actuator y el frontend no pasan por la base
+        return !request.getRequestURI().startsWith("/api/") || request.getMethod().equals("OPTIONS");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass type = classify(request.getMethod(), request.getRequestURI());
+        Limits classLimits = limits.get(type);
+
+        if (!admit(type, classLimits)) {
+            classLimits.rejected().increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(classLimits.retryAfterSeconds()));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Servidor saturado, reintentar en " + classLimits.retryAfterSeconds() + " s");
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                shared.release();
+                classLimits.permits().release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streams y PDFs siguen en otro hilo: el cupo se libera cuando terminan de verdad
+                request.getAsyncContext().addListener(new ReleaseOnComplete(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private boolean admit(EndpointClass type, Limits classLimits) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(classLimits.maxWaitMs());
+        try {
+            if (!classLimits.permits().tryAcquire(classLimits.maxWaitMs(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            if (!shared.tryAcquire(type.ordinal(), deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                classLimits.permits().release();
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            classLimits.waitTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private record ReleaseOnComplete(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo ciclo async sobre la misma peticion: hay que seguir escuchando
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cupos compartidos entre clases de peticiones con prioridad (0 = la mas alta).
+ * Un cupo libre va primero a quien espera con mayor prioridad, y los ultimos
+ * "reserved" cupos solo los toma la prioridad 0: con todo lleno de lecturas
+ * sigue habiendo lugar para un checkout.
+ */
+class AdmissionLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] turns;
+    private final int[] waiting;
+    private final int reserved;
+    private int available;
+
+    AdmissionLimiter(int permits, int priorities, int reserved) {
+        this.available = permits;
+        this.reserved = Math.min(reserved, permits - 1);
+        this.turns = new Condition[priorities];
+        this.waiting = new int[priorities];
+        for (int i = 0; i < priorities; i++) {
+            turns[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * @return false si no hubo cupo dentro del timeout
+     */
+    boolean tryAcquire(int priority, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            waiting[priority]++;
+            try {
+                while (!canTake(priority)) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = turns[priority].awaitNanos(nanos);
+                }
+                available--;
+                return true;
+            } finally {
+                waiting[priority]--;
+                // Si quedan cupos (o esta espera se rindio) le toca al siguiente en la fila
+                signalNext();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            available++;
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int waiting(int priority) {
+        lock.lock();
+        try {
+            return waiting[priority];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean canTake(int priority) {
+        if (available - (priority == 0 ? 0 : reserved) <= 0) {
+            return false;
+        }
+        for (int higher = 0; higher < priority; higher++) {
+            if (waiting[higher] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void signalNext() {
+        for (int priority = 0; priority < waiting.length; priority++) {
+            if (waiting[priority] > 0) {
+                turns[priority].signal();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// Las caches se configuran en application.properties (spring.cache.*)
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+// Perfil demo (desarrollo local): despues de las migraciones carga categorias, productos y el
+// usuario admin de ejemplo. Fuera del historial de Flyway: la misma base arranca con o sin el perfil
+@Configuration
+@Profile("demo")
+public class DemoDataConfig {
+
+    @Bean
+    public FlywayMigrationStrategy migrateWithDemoData(DataSource dataSource) {
+        return flyway -> {
+            flyway.migrate();
+            // El script saltea lo que ya esta: se puede correr en cada arranque
+            new ResourceDatabasePopulator(new ClassPathResource("db/demo/datos-de-ejemplo.sql")).execute(dataSource);
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Manda las transacciones de solo lectura a la replica y todo lo demas al
+ * primario. Si la replica esta atrasada o caida (ReplicaLagMonitor) o no
+ * entrega una conexion, se usa el primario.
+ * Va envuelto en LazyConnectionDataSourceProxy: la conexion se pide en la
+ * primera sentencia, cuando el flag de solo lectura de la transaccion ya esta puesto.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final ReplicaLagMonitor replicaMonitor;
+    private Counter primaryConnections;
+    private Counter replicaConnections;
+    private Counter fallbacks;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaMonitor) {
+        this.primary = primary;
+        this.replicaMonitor = replicaMonitor;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        this.primaryConnections = Counter.builder("jdbc.routing.connections").tag("target", PRIMARY)
+                .description("Conexiones entregadas por destino").register(registry);
+        this.replicaConnections = Counter.builder("jdbc.routing.connections").tag("target", REPLICA)
+                .description("Conexiones entregadas por destino").register(registry);
+        this.fallbacks = Counter.builder("jdbc.routing.fallbacks")
+                .description("Lecturas que fueron al primario porque la replica no dio conexion").register(registry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaMonitor.isUsable()
+                ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!REPLICA.equals(determineCurrentLookupKey())) {
+            increment(primaryConnections);
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = determineTargetDataSource().getConnection();
+            increment(replicaConnections);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            // No se espera al siguiente chequeo: las lecturas van al primario desde ya
+            replicaMonitor.markDown(e);
+            increment(fallbacks);
+            log.warn("Replica sin conexion, lectura en el primario: {}", e.getMessage());
+            increment(primaryConnections);
+            return primary.getConnection();
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
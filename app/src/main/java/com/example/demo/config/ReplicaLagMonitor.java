@@ -0,0 +1,101 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cada cierto tiempo el atraso de la replica de PostgreSQL. La replica se
+ * usa solo si responde y su atraso no supera el maximo tolerado; si no, las
+ * lecturas van al primario hasta el siguiente chequeo que salga bien.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Sin WAL pendiente de aplicar el atraso es 0 aunque el primario no haya escrito hace rato
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END
+            """;
+
+    private final DataSource replica;
+    private final long maxLagMs;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean usable;
+    private volatile long lagMs = -1;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagMs, long checkIntervalMs) {
+        this.replica = replica;
+        this.maxLagMs = maxLagMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        check();
+        scheduler.scheduleWithFixedDelay(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jdbc.replica.lag", this, m -> m.lagMs)
+                .description("Atraso de la replica (-1 si no responde)")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("jdbc.replica.usable", this, m -> m.usable ? 1 : 0)
+                .description("1 si las lecturas van a la replica")
+                .register(registry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    void markDown(Exception cause) {
+        lagMs = -1;
+        setUsable(false, "sin conexion (" + cause.getMessage() + ")");
+    }
+
+    void check() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            rs.next();
+            lagMs = rs.getLong(1);
+            setUsable(lagMs <= maxLagMs, "atraso de " + lagMs + " ms (maximo " + maxLagMs + " ms)");
+        } catch (SQLException | RuntimeException e) {
+            lagMs = -1;
+            setUsable(false, "sin conexion (" + e.getMessage() + ")");
+        }
+    }
+
+    // Solo se loguean los cambios de estado
+    private void setUsable(boolean value, String reason) {
+        if (usable != value) {
+            if (value) {
+                log.info("Replica disponible para lecturas: {}", reason);
+            } else {
+                log.warn("Lecturas al primario, replica descartada: {}", reason);
+            }
+        }
+        usable = value;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
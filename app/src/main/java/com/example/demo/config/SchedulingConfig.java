@@ -0,0 +1,10 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Tareas en segundo plano (bandeja de salida de correos, etc.)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publica http.server.requests.sql.statements: sentencias SQL por peticion, por endpoint.
+ * Solo cuenta las del hilo de la peticion; lo que corre despues en el hilo async
+ * (cuerpo de los /stream) no se incluye.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = SqlStatementCounter.stop();
+            // Solo peticiones que llegaron a un controller: el patron acota la cardinalidad
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (statements >= 0 && uri != null && request.getRequestURI().startsWith("/api/")) {
+                DistributionSummary.builder("http.server.requests.sql.statements")
+                        .description("Sentencias SQL por peticion")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri.toString())
+                        .register(registry)
+                        .record(statements);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.SalesByDay;
+import com.example.demo.dto.SalesByStatus;
+import com.example.demo.dto.SalesByVariant;
+import com.example.demo.dto.SalesRebuildResult;
+import com.example.demo.repositories.SalesDailyRepository;
+import com.example.demo.repositories.SalesDailyVariantRepository;
+import com.example.demo.services.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tableros de ventas. Todo sale de los acumulados diarios (sales_daily y
+ * sales_daily_variant): el costo depende de los dias pedidos, no de las ordenes.
+ * Rangos [from, to) en fechas ISO; por defecto los ultimos 30 dias incluyendo hoy.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private SalesDailyRepository salesDailyRepository;
+
+    @Autowired
+    private SalesDailyVariantRepository salesDailyVariantRepository;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    // 1. INGRESOS Y ORDENES POR DIA (opcionalmente de un solo estado)
+    @Transactional(readOnly = true)
+    @GetMapping("/sales/daily")
+    public List<SalesByDay> salesByDay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        return salesDailyRepository.findByDay(from != null ? from : end.minusDays(30), end, status);
+    }
+
+    // 2. TOTALES POR ESTADO
+    @Transactional(readOnly = true)
+    @GetMapping("/sales/status")
+    public List<SalesByStatus> salesByStatus(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        return salesDailyRepository.findByStatus(from != null ? from : end.minusDays(30), end);
+    }
+
+    // 3. VARIANTES MAS VENDIDAS (por ingresos)
+    @Transactional(readOnly = true)
+    @GetMapping("/sales/variants")
+    public List<SalesByVariant> salesByVariant(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "20") int limit) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        return salesDailyVariantRepository.findTopVariants(from != null ? from : end.minusDays(30), end, status,
+                Limit.of(Math.max(1, Math.min(limit, 500))));
+    }
+
+    // 4. RECONSTRUIR ACUMULADOS (backfill o correccion; sin rango recalcula todo)
+    @PostMapping("/rollups/rebuild")
+    public SalesRebuildResult rebuildRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return salesRollups.rebuild(from, to);
+    }
+}
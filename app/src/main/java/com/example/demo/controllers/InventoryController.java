@@ -0,0 +1,100 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.StockLevel;
+import com.example.demo.dto.StockReservationRequest;
+import com.example.demo.dto.StockShortage;
+import com.example.demo.dto.StockUpdate;
+import com.example.demo.models.ProductVariant;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.ProductVariantRepository;
+import com.example.demo.services.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryService inventory;
+
+    // ==================== VARIANTES ====================
+
+    @Transactional(readOnly = true)
+    @GetMapping("/variants")
+    public List<ProductVariant> getVariants(@RequestParam Long productId) {
+        return variantRepository.findByProductIdOrderById(productId);
+    }
+
+    // Alta de una variante (sin stock: se carga con PUT .../stock)
+    @PostMapping("/variants")
+    public ResponseEntity<ProductVariant> createVariant(@RequestBody ProductVariant variant) {
+        if (variant.getProductId() == null || variant.getSku() == null
+                || !productRepository.existsById(variant.getProductId())) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (variantRepository.existsBySku(variant.getSku())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(variantRepository.save(variant));
+    }
+
+    // ==================== STOCK ====================
+
+    @GetMapping("/variants/{id}/stock")
+    public ResponseEntity<StockLevel> getStock(@PathVariable Long id) {
+        if (!variantRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(inventory.stockLevel(id));
+    }
+
+    // Fija el disponible; lo que ya esta reservado no cuenta y no se toca
+    @PutMapping("/variants/{id}/stock")
+    public ResponseEntity<StockLevel> setStock(@PathVariable Long id, @RequestBody StockUpdate update) {
+        if (update.available() == null || update.available() < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!variantRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(inventory.setAvailable(id, update.available()));
+    }
+
+    // ==================== RESERVAS ====================
+
+    // Aparta stock por app.inventory.reservation-ttl; el token se manda al crear la orden
+    @PostMapping("/reservations")
+    public ResponseEntity<?> reserve(@RequestBody StockReservationRequest request) {
+        if (request.items() == null || request.items().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(inventory.hold(request.items()));
+        } catch (InventoryService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new StockShortage("Sin stock suficiente", e.getProductVariantIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Cancela la reserva y devuelve las unidades
+    @DeleteMapping("/reservations/{token}")
+    public ResponseEntity<Void> release(@PathVariable String token) {
+        return inventory.release(token)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
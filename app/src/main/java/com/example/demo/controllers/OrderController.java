@@ -1,20 +1,46 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dto.BulkIngestResponse;
+import com.example.demo.dto.BulkDeleteResult;
+import com.example.demo.dto.BulkNotifyResponse;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.EmailResult;
+import com.example.demo.dto.OrderEmail;
+import com.example.demo.dto.OrderPatch;
+import com.example.demo.dto.OrderSelection;
+import com.example.demo.dto.OrderSummary;
+import com.example.demo.dto.ReceiptExportProgress;
+import com.example.demo.dto.StockShortage;
 import com.example.demo.models.Order;
-import com.example.demo.models.User;
 import com.example.demo.repositories.OrderRepository;
-import com.example.demo.repositories.UserRepository;
 import com.example.demo.services.EmailService;
+import com.example.demo.services.IdempotencyService;
+import com.example.demo.services.InventoryService;
+import com.example.demo.services.JsonStreamService;
+import com.example.demo.services.NdjsonExportService;
+import com.example.demo.services.OrderBulkService;
+import com.example.demo.services.OrderIngestService;
+import com.example.demo.services.OrderService;
 import com.example.demo.services.PdfService;
+import com.example.demo.services.ReceiptExportService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -24,68 +50,192 @@ public class OrderController {
     private OrderRepository orderRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private PdfService pdfService;
 
     @Autowired
-    private PdfService pdfService;
+    private OrderService orderService;
+
+    @Autowired
+    private OrderIngestService orderIngestService;
+
+    @Autowired
+    private OrderBulkService orderBulkService;
+
+    @Autowired
+    private JsonStreamService jsonStreamService;
+
+    @Autowired
+    private NdjsonExportService ndjsonExport;
+
+    @Autowired
+    private ReceiptExportService receiptExport;
 
     @Autowired
     private EmailService emailService;
 
-    // 1. OBTENER TODAS LAS ORDENES
+    @Autowired
+    private IdempotencyService idempotency;
+
+    // 1. OBTENER TODAS LAS ORDENES (resumen con itemCount; los items estan en /{id})
+    @Transactional(readOnly = true)
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    public List<OrderSummary> getAllOrders() {
+        return orderRepository.findAllSummaries();
+    }
+
+    // 1.1 PAGINA DE ORDENES (keyset: ?cursor=<ultimo id>&size=50, mas recientes primero)
+    @Transactional(readOnly = true)
+    @GetMapping("/page")
+    public CursorPage<Order> getOrdersPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        int limit = Math.max(1, Math.min(size, 500));
+        List<Order> orders = orderRepository.findPage(cursor, status, userId, from, to, Limit.of(limit));
+        return CursorPage.of(orders, limit, Order::getId);
+    }
+
+    // 1.2 TODAS LAS ORDENES EN STREAMING (memoria constante sin importar el tamaño de la tabla)
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonStreamService.jsonArray(() -> orderRepository.streamAll(status, userId, from, to)));
+    }
+
+    // 1.3 EXPORTACION COMPLETA EN NDJSON (una orden con sus items por linea, gzip si el cliente lo acepta)
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        boolean gzip = NdjsonExportService.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(ndjsonExport.orders(status, userId, from, to, gzip));
     }
 
     // 2. OBTENER ORDEN POR ID
+    @Transactional(readOnly = true)
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
-        return orderRepository.findById(id)
-                .map(ResponseEntity::ok)
+        // El ETag es la version: se reenvia en If-Match al hacer PATCH
+        return orderRepository.findWithItemsById(id)
+                .map(order -> ResponseEntity.ok().eTag(VersionedPatch.etag(order.getVersion())).body(order))
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // 3. CREAR UNA ORDEN
+    // 3. CREAR UNA ORDEN (descuenta stock y encola el correo de confirmacion)
+    // Con Idempotency-Key un reintento devuelve la orden ya creada en vez de crear otra.
+    // Con Reservation-Token usa el stock apartado en POST /api/inventory/reservations.
+    // Sin stock responde 409 con las variantes que faltan
     @PostMapping
-    public Order createOrder(@RequestBody Order order) {
-        return orderRepository.save(order);
+    public ResponseEntity<?> createOrder(@RequestBody Order order,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         @RequestHeader(value = InventoryService.RESERVATION_HEADER, required = false) String reservationToken) {
+        try {
+            return idempotency.execute("POST /api/orders", idempotencyKey, order,
+                    () -> ResponseEntity.ok(orderService.create(order, reservationToken)));
+        } catch (InventoryService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new StockShortage("Sin stock suficiente", e.getProductVariantIds()));
+        }
+    }
+
+    // 3.1 CARGA MASIVA (array JSON o NDJSON); devuelve el resultado de cada registro
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkIngestResponse bulkCreateOrders(InputStream body) throws IOException {
+        return orderIngestService.ingest(body);
     }
 
-    // 4. ACTUALIZAR ORDEN
+    // 4. ACTUALIZAR ORDEN (si cambia el estado se encola el correo)
+    // Las lineas nuevas o agrandadas descuentan stock y las quitadas lo devuelven; cancelar devuelve todo.
+    // Sin stock responde 409 y la orden queda como estaba
     @PutMapping("/{id}")
-    public ResponseEntity<Order> updateOrder(@PathVariable Long id, @RequestBody Order orderDetails) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    order.setUserId(orderDetails.getUserId());
-                    order.setStatus(orderDetails.getStatus());
-                    order.setGrandTotal(orderDetails.getGrandTotal());
-                    if (orderDetails.getItems() != null) {
-                        order.setItems(orderDetails.getItems());
-                    }
-                    return ResponseEntity.ok(orderRepository.save(order));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateOrder(@PathVariable Long id, @RequestBody Order orderDetails) {
+        try {
+            return orderService.update(id, orderDetails)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (InventoryService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new StockShortage("Sin stock suficiente", e.getProductVariantIds()));
+        }
+    }
+
+    // 4.1 ACTUALIZACION PARCIAL (solo los campos y lineas enviados; version en If-Match o en el cuerpo)
+    // El stock se ajusta igual que en PUT
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchOrder(@PathVariable Long id, @RequestBody OrderPatch patch,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return VersionedPatch.apply(ifMatch, patch.version(), expected -> orderService.patch(id, expected, patch)
+                    .map(order -> ResponseEntity.ok().eTag(VersionedPatch.etag(order.getVersion())).body(order)));
+        } catch (InventoryService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new StockShortage("Sin stock suficiente", e.getProductVariantIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // 5. ELIMINAR ORDEN
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    orderRepository.delete(order);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+        return orderService.delete(id)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // 5.1 BORRADO MASIVO (body: {"ids":[...]} o filtros {"status":"cancelled","from":...,"to":...})
+    // Sentencias por conjunto en bloques; devuelve cuantas filas se borraron y el stock de las no canceladas
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkDeleteResult> bulkDeleteOrders(@RequestBody OrderSelection selection) {
+        if (selection.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(orderBulkService.delete(selection));
+    }
+
+    // 5.2 ARCHIVAR (mismo body): copia a orders_archive y order_items_archive y borra
+    @PostMapping("/archive")
+    public ResponseEntity<BulkDeleteResult> archiveOrders(@RequestBody OrderSelection selection) {
+        if (selection.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(orderBulkService.archive(selection));
     }
 
     // 6. DESCARGAR PDF (Recibo)
+    // Sale de la cache o se renderiza en el pool de PDFs; los bytes se escriben en la respuesta
+    // desde el hilo async de MVC, sin bloquear el hilo de Tomcat ni el de render
+    @Transactional(readOnly = true)
     @GetMapping(value = "/{id}/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<InputStreamResource> downloadReceipt(@PathVariable Long id) {
-        Order order = orderRepository.findById(id)
+    public ResponseEntity<StreamingResponseBody> downloadReceipt(@PathVariable Long id) {
+        Order order = orderRepository.findWithItemsById(id)
                 .orElseThrow(() -> new RuntimeException("Orden no encontrada"));
 
-        ByteArrayInputStream bis = pdfService.generateOrderReceipt(order);
+        PdfService.Receipt receipt;
+        try {
+            receipt = pdfService.openOrderReceipt(order);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Disposition", "attachment; filename=recibo_orden_" + id + ".pdf");
@@ -94,24 +244,78 @@ public class OrderController {
                 .ok()
                 .headers(headers)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(new InputStreamResource(bis));
+                .body(receipt::writeTo);
+    }
+
+    // 6.1 EXPORTAR RECIBOS EN ZIP (?ids=1,2,3 o un rango from/to, opcionalmente por estado)
+    // El ZIP se escribe mientras se renderiza; el avance se consulta con el id del header X-Export-Id
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/receipts", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> exportReceipts(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if ((ids == null || ids.isEmpty()) && from == null && to == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> orderIds = ids != null && !ids.isEmpty() ? ids : orderRepository.findIds(status, from, to);
+        ReceiptExportService.Export export = receiptExport.start(orderIds);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=recibos.zip")
+                .header("X-Export-Id", export.getId())
+                .body(out -> receiptExport.write(export, out));
+    }
+
+    // 6.2 AVANCE DE LAS EXPORTACIONES (en curso y terminadas en la ultima hora)
+    @GetMapping("/receipts/exports")
+    public List<ReceiptExportProgress> getReceiptExports() {
+        return receiptExport.progress();
+    }
+
+    @GetMapping("/receipts/exports/{exportId}")
+    public ResponseEntity<ReceiptExportProgress> getReceiptExport(@PathVariable String exportId) {
+        return receiptExport.progress(exportId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     // 7. ENVIAR CORREO
+    // Se encola en la bandeja de salida; EmailOutboxDispatcher lo envia y reintenta si falla
+    // Con Idempotency-Key un reintento no encola el correo otra vez
     @PostMapping("/{id}/email")
-    public ResponseEntity<String> sendOrderEmail(@PathVariable Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Orden no encontrada"));
+    public ResponseEntity<?> sendOrderEmail(@PathVariable Long id,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute("POST /api/orders/" + id + "/email", idempotencyKey, id, () -> {
+            Order order = orderRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Orden no encontrada"));
 
-        User user = userRepository.findById(order.getUserId())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            return orderService.requestEmail(order.getId())
+                    .map(email -> ResponseEntity.accepted().body("Correo encolado para " + email))
+                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        });
+    }
 
-        try {
-            emailService.sendOrderConfirmation(user.getEmail(), order.getId(), order.getStatus());
-            return ResponseEntity.ok("Correo enviado exitosamente a " + user.getEmail());
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body("Error al enviar correo: " + e.getMessage());
+    // 7.1 AVISO MASIVO DE ESTADO (body: [id, id, ...])
+    // Envia ya, en lotes de Resend, y devuelve el resultado de cada orden (sin reintentos)
+    @PostMapping("/notify")
+    public BulkNotifyResponse notifyOrders(@RequestBody List<Long> ids) {
+        long start = System.currentTimeMillis();
+        List<Long> unique = ids.stream().distinct().toList();
+        Map<Long, OrderEmail> emails = new HashMap<>();
+        for (int from = 0; from < unique.size(); from += 1000) {
+            orderRepository.findEmails(unique.subList(from, Math.min(from + 1000, unique.size())))
+                    .forEach(email -> emails.put(email.orderId(), email));
         }
+
+        List<OrderEmail> toSend = unique.stream().filter(emails::containsKey).map(emails::get).toList();
+        Map<Long, EmailResult> sent = new HashMap<>();
+        emailService.sendBatch(toSend).forEach(result -> sent.put(result.orderId(), result));
+
+        List<EmailResult> results = unique.stream()
+                .map(id -> sent.getOrDefault(id, EmailResult.failed(id, null, "Orden inexistente o sin usuario")))
+                .toList();
+        return BulkNotifyResponse.of(results, System.currentTimeMillis() - start);
     }
 }
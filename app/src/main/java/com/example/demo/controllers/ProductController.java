@@ -1,14 +1,42 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dto.CategoryNode;
+import com.example.demo.dto.CategoryPathItem;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.ProductPatch;
+import com.example.demo.dto.ProductSearchResult;
+import com.example.demo.dto.ProductSummary;
+import com.example.demo.dto.ProductsInUse;
 import com.example.demo.models.Category;
 import com.example.demo.models.Product;
 import com.example.demo.repositories.CategoryRepository;
 import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.ProductVariantRepository;
+import com.example.demo.services.CatalogCacheService;
+import com.example.demo.services.CategoryTreeService;
+import com.example.demo.services.JsonStreamService;
+import com.example.demo.services.NdjsonExportService;
+import com.example.demo.services.ProductBulkService;
+import com.example.demo.services.ProductSearchIndex;
+import com.example.demo.services.VersionedUpdateService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -20,27 +48,105 @@ public class ProductController {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private JsonStreamService jsonStreamService;
+
+    @Autowired
+    private NdjsonExportService ndjsonExport;
+
+    @Autowired
+    private CatalogCacheService catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryTreeService categoryTree;
+
+    @Autowired
+    private VersionedUpdateService versionedUpdates;
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
     // ==================== CATEGORIAS ====================
     
+    // Las lecturas del catalogo salen de CatalogCacheService (JSON cacheado + ETag)
+    @Transactional(readOnly = true)
     @GetMapping("/categories")
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public ResponseEntity<byte[]> getAllCategories(WebRequest request) {
+        return catalogCache.list(CatalogCacheService.CATEGORIES, request, categoryRepository::findAll);
     }
 
+    @Transactional(readOnly = true)
     @GetMapping("/categories/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
-        return categoryRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getCategoryById(@PathVariable Long id, WebRequest request) {
+        return catalogCache.one(CatalogCacheService.CATEGORIES, id, request,
+                () -> categoryRepository.findById(id));
+    }
+
+    // Arbol completo (raices con sus hijas anidadas)
+    @Transactional(readOnly = true)
+    @GetMapping("/categories/tree")
+    public List<CategoryNode> getCategoryTree() {
+        return categoryTree.tree();
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping("/categories/{id}/subtree")
+    public ResponseEntity<CategoryNode> getCategorySubtree(@PathVariable Long id) {
+        return ResponseEntity.of(categoryTree.subtree(id));
+    }
+
+    // Camino raiz -> padre
+    @Transactional(readOnly = true)
+    @GetMapping("/categories/{id}/ancestors")
+    public ResponseEntity<List<CategoryPathItem>> getCategoryAncestors(@PathVariable Long id) {
+        return ResponseEntity.of(categoryTree.ancestors(id));
+    }
+
+    // Camino raiz -> categoria
+    @Transactional(readOnly = true)
+    @GetMapping("/categories/{id}/breadcrumb")
+    public ResponseEntity<List<CategoryPathItem>> getCategoryBreadcrumb(@PathVariable Long id) {
+        return ResponseEntity.of(categoryTree.breadcrumb(id));
+    }
+
+    // Productos de la categoria y de todas sus descendientes, con paginacion keyset
+    @Transactional(readOnly = true)
+    @GetMapping("/categories/{id}/products")
+    public ResponseEntity<CursorPage<Product>> getCategorySubtreeProducts(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Boolean active) {
+        List<Long> categoryIds = categoryTree.subtreeIds(id);
+        if (categoryIds.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        int limit = Math.max(1, Math.min(size, 500));
+        List<Product> products = productRepository.findPageInCategories(categoryIds, cursor, active, Limit.of(limit));
+        return ResponseEntity.ok(CursorPage.of(products, limit, Product::getId));
     }
 
     @PostMapping("/categories")
     public Category createCategory(@RequestBody Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        catalogCache.evictCategory(saved.getId());
+        searchIndex.putCategory(saved.getId(), saved.getName());
+        categoryTree.refresh();
+        return saved;
     }
 
     @PutMapping("/categories/{id}")
     public ResponseEntity<Category> updateCategory(@PathVariable Long id, @RequestBody Category categoryDetails) {
+        // Una categoria no puede colgar de si misma ni de una descendiente
+        if (categoryTree.wouldCreateCycle(id, categoryDetails.getParentId())) {
+            return ResponseEntity.badRequest().build();
+        }
         return categoryRepository.findById(id)
                 .map(category -> {
                     category.setName(categoryDetails.getName());
@@ -49,7 +155,11 @@ public class ProductController {
                     if (categoryDetails.getParentId() != null) {
                         category.setParentId(categoryDetails.getParentId());
                     }
-                    return ResponseEntity.ok(categoryRepository.save(category));
+                    Category saved = categoryRepository.save(category);
+                    catalogCache.evictCategory(id);
+                    searchIndex.putCategory(id, saved.getName());
+                    categoryTree.refresh();
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -59,6 +169,9 @@ public class ProductController {
         return categoryRepository.findById(id)
                 .map(category -> {
                     categoryRepository.delete(category);
+                    catalogCache.evictCategory(id);
+                    searchIndex.removeCategory(id);
+                    categoryTree.refresh();
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -66,26 +179,87 @@ public class ProductController {
 
     // ==================== PRODUCTOS ====================
     
+    @Transactional(readOnly = true)
     @GetMapping("/products")
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public ResponseEntity<byte[]> getAllProducts(WebRequest request) {
+        // Resumen (sin description); el producto completo esta en /products/{id}
+        return catalogCache.list(CatalogCacheService.PRODUCTS, request, this::productSummaries);
+    }
+
+    // Paginacion keyset: ?cursor=<ultimo id>&size=50
+    @Transactional(readOnly = true)
+    @GetMapping("/products/page")
+    public CursorPage<Product> getProductsPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Boolean active) {
+        int limit = Math.max(1, Math.min(size, 500));
+        List<Product> products = productRepository.findPage(cursor, categoryId, active, Limit.of(limit));
+        return CursorPage.of(products, limit, Product::getId);
+    }
+
+    @GetMapping(value = "/products/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Boolean active) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonStreamService.jsonArray(() -> productRepository.streamAll(categoryId, active)));
+    }
+
+    // Exportacion completa en NDJSON (un producto por linea, gzip si el cliente lo acepta)
+    @GetMapping(value = "/products/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Boolean active) {
+        boolean gzip = NdjsonExportService.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(ndjsonExport.products(categoryId, active, gzip));
+    }
+
+    // Busqueda con relevancia y facets: ?q=camiseta&categoryId=2&minPrice=10&maxPrice=50&page=0&size=20
+    // categoryId incluye las subcategorias
+    @Transactional(readOnly = true)
+    @GetMapping("/products/search")
+    public ProductSearchResult searchProducts(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        int limit = Math.max(1, Math.min(size, 100));
+        List<Long> categoryIds = categoryId != null ? categoryTree.subtreeIds(categoryId) : null;
+        return searchIndex.search(q, categoryIds, minPrice, maxPrice, active, Math.max(0, page), limit);
     }
 
+    @Transactional(readOnly = true)
     @GetMapping("/products/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return productRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id, WebRequest request) {
+        // El ETag lleva la version del producto: sirve tal cual como If-Match del PATCH
+        return catalogCache.one(CatalogCacheService.PRODUCTS, id, request,
+                () -> productRepository.findWithCategoryById(id), Product::getVersion);
     }
 
     @PostMapping("/products")
     public Product createProduct(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.evictProduct(saved.getId());
+        searchIndex.index(saved);
+        return saved;
     }
 
     @PutMapping("/products/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
-        return productRepository.findById(id)
+        return productRepository.findWithCategoryById(id)
                 .map(product -> {
                     product.setName(productDetails.getName());
                     product.setSlug(productDetails.getSlug());
@@ -95,18 +269,80 @@ public class ProductController {
                     if (productDetails.getCategory() != null) {
                         product.setCategory(productDetails.getCategory());
                     }
-                    return ResponseEntity.ok(productRepository.save(product));
+                    Product saved = productRepository.save(product);
+                    catalogCache.evictProduct(id);
+                    searchIndex.index(saved);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Solo los campos enviados, en un UPDATE con la version esperada (If-Match o "version"); sin leer el producto
+    @PatchMapping("/products/{id}")
+    public ResponseEntity<Void> patchProduct(@PathVariable Long id, @RequestBody ProductPatch patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return VersionedPatch.apply(ifMatch, patch.version(), expected -> {
+            Map<String, Object> changes = patch.changes();
+            if (patch.categoryId() != null) {
+                changes.put("category", categoryRepository.getReferenceById(patch.categoryId()));
+            }
+            if (!versionedUpdates.update(Product.class, id, expected, changes)) {
+                return Optional.empty();
+            }
+            catalogCache.evictProduct(id);
+            searchIndex.patch(id, patch);
+            return Optional.of(VersionedPatch.noContent(expected));
+        });
+    }
+
     @DeleteMapping("/products/{id}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        return productRepository.findById(id)
-                .map(product -> {
-                    productRepository.delete(product);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
+        // Un producto con variantes tiene stock y ventas: se desactiva, no se borra
+        if (variantRepository.existsByProductId(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ProductsInUse("El producto tiene variantes", List.of(id)));
+        }
+        try {
+            return productRepository.findById(id)
+                    .map(product -> {
+                        productRepository.delete(product);
+                        catalogCache.evictProduct(id);
+                        searchIndex.remove(id);
+                        return ResponseEntity.ok().build();
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (DataIntegrityViolationException e) {
+            // Se le creo una variante despues de la comprobacion
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ProductsInUse("El producto tiene variantes", List.of(id)));
+        }
+    }
+
+    // Borrado masivo (body: [id, id, ...]): un DELETE por bloque, sin cargar los productos
+    // Si alguno tiene variantes responde 409 con esos ids y no se borra nada
+    @PostMapping("/products/bulk-delete")
+    public ResponseEntity<?> bulkDeleteProducts(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(productBulkService.delete(ids));
+        } catch (ProductBulkService.ProductsInUseException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ProductsInUse("Hay productos con variantes", e.getProductIds()));
+        }
+    }
+
+    // Una consulta a products; los nombres de categoria salen del arbol en memoria
+    private List<ProductSummary> productSummaries() {
+        List<ProductSummary> products = productRepository.findAllSummaries();
+        Set<Long> categoryIds = new HashSet<>();
+        for (ProductSummary product : products) {
+            if (product.category() != null) {
+                categoryIds.add(product.category().id());
+            }
+        }
+        Map<Long, String> names = categoryTree.names(categoryIds);
+        return products.stream()
+                .map(product -> product.category() == null ? product
+                        : product.withCategoryName(names.get(product.category().id())))
+                .toList();
     }
 }
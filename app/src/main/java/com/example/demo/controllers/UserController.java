@@ -1,12 +1,26 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserPatch;
+import com.example.demo.dto.UserSummary;
+import com.example.demo.dto.UsersInUse;
 import com.example.demo.models.User;
 import com.example.demo.repositories.UserRepository;
+import com.example.demo.services.JsonStreamService;
+import com.example.demo.services.UserBulkService;
+import com.example.demo.services.VersionedUpdateService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/users")
@@ -15,17 +29,48 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
-    // GET: Obtener todos los usuarios
+    @Autowired
+    private JsonStreamService jsonStreamService;
+
+    @Autowired
+    private VersionedUpdateService versionedUpdates;
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    // GET: Obtener todos los usuarios (resumen; el detalle completo esta en /{id})
+    @Transactional(readOnly = true)
     @GetMapping
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserSummary> getAllUsers() {
+        return userRepository.findAllSummaries();
+    }
+
+    // GET: Pagina de usuarios (keyset: ?cursor=<ultimo id>&size=50)
+    @Transactional(readOnly = true)
+    @GetMapping("/page")
+    public CursorPage<User> getUsersPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String role) {
+        int limit = Math.max(1, Math.min(size, 500));
+        List<User> users = userRepository.findPage(cursor, role, Limit.of(limit));
+        return CursorPage.of(users, limit, User::getId);
+    }
+
+    // GET: Todos los usuarios en streaming
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(required = false) String role) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonStreamService.jsonArray(() -> userRepository.streamAll(role)));
     }
 
     // GET: Obtener usuario por ID
+    @Transactional(readOnly = true)
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
         return userRepository.findById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> ResponseEntity.ok().eTag(VersionedPatch.etag(user.getVersion())).body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -53,6 +98,16 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // PATCH: Solo los campos enviados, en un UPDATE con la version esperada (If-Match o "version")
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchUser(@PathVariable Long id, @RequestBody UserPatch patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return VersionedPatch.apply(ifMatch, patch.version(), expected ->
+                versionedUpdates.update(User.class, id, expected, patch.changes())
+                        ? Optional.of(VersionedPatch.<Void>noContent(expected))
+                        : Optional.empty());
+    }
+
     // DELETE: Eliminar usuario
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
@@ -63,4 +118,16 @@ public class UserController {
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // POST: Borrado masivo (body: [id, id, ...]), un DELETE por bloque sin cargar los usuarios
+    // Si alguno tiene ordenes responde 409 con esos ids y no se borra nada
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> bulkDeleteUsers(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(userBulkService.delete(ids));
+        } catch (UserBulkService.UsersInUseException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new UsersInUse("Hay usuarios con ordenes", e.getUserIds()));
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Precondiciones de los PATCH con bloqueo optimista. La version esperada sale
+ * del header If-Match ("3", W/"3", el ETag del catalogo "3-<hash>", o * para
+ * cualquiera) o, si no viene, del campo version del cuerpo. Sin ninguna de las
+ * dos se responde 428.
+ * Version vieja: 412 si vino en If-Match, 409 si vino en el cuerpo.
+ */
+final class VersionedPatch {
+
+    private VersionedPatch() {}
+
+    /**
+     * @param update recibe la version esperada (null con If-Match: *) y devuelve
+     *               la respuesta, o vacio si el recurso no existe
+     */
+    static <T> ResponseEntity<T> apply(String ifMatch, Long bodyVersion,
+                                       Function<Long, Optional<ResponseEntity<T>>> update) {
+        Long expected;
+        if (ifMatch != null) {
+            String value = ifMatch.trim();
+            if (value.equals("*")) {
+                expected = null;
+            } else {
+                expected = parse(value);
+                // Un ETag sin version (p. ej. el de la lista del catalogo) no puede coincidir
+                if (expected == null) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+                }
+            }
+        } else if (bodyVersion != null) {
+            expected = bodyVersion;
+        } else {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+
+        try {
+            return update.apply(expected).orElse(ResponseEntity.notFound().build());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // 204 con la version nueva como ETag; con If-Match: * no se conoce sin releer la fila
+    static <T> ResponseEntity<T> noContent(Long expected) {
+        return expected == null
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.noContent().eTag(etag(expected + 1)).build();
+    }
+
+    static String etag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static Long parse(String etag) {
+        String value = etag.startsWith("W/") ? etag.substring(2) : etag;
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        // ETag de CatalogCacheService: la version antes del hash del JSON
+        int dash = value.indexOf('-');
+        if (dash > 0) {
+            value = value.substring(0, dash);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
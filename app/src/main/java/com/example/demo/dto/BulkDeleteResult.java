@@ -0,0 +1,7 @@
+package com.example.demo.dto;
+
+/**
+ * Resultado de un borrado o archivado masivo. archived es 0 en los borrados;
+ * chunks es la cantidad de transacciones usadas.
+ */
+public record BulkDeleteResult(int deleted, int archived, int itemsDeleted, int chunks, long millis) {}
@@ -0,0 +1,11 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public record BulkIngestResponse(int received, int created, int failed, List<BulkResult> results) {
+
+    public static BulkIngestResponse of(List<BulkResult> results) {
+        int created = (int) results.stream().filter(r -> BulkResult.CREATED.equals(r.status())).count();
+        return new BulkIngestResponse(results.size(), created, results.size() - created, results);
+    }
+}
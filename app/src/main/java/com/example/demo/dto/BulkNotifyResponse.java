@@ -0,0 +1,11 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public record BulkNotifyResponse(int requested, int sent, int failed, long millis, List<EmailResult> results) {
+
+    public static BulkNotifyResponse of(List<EmailResult> results, long millis) {
+        int sent = (int) results.stream().filter(EmailResult::isSent).count();
+        return new BulkNotifyResponse(results.size(), sent, results.size() - sent, millis, results);
+    }
+}
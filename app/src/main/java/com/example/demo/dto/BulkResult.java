@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+/**
+ * Resultado de un registro dentro de una carga masiva.
+ * index es la posicion del registro en la entrada (desde 0).
+ */
+public record BulkResult(int index, Long id, String status, String error) {
+
+    public static final String CREATED = "created";
+    public static final String FAILED = "failed";
+
+    public static BulkResult created(int index, Long id) {
+        return new BulkResult(index, id, CREATED, null);
+    }
+
+    public static BulkResult failed(int index, String error) {
+        return new BulkResult(index, null, FAILED, error);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * Respuesta JSON ya serializada junto con su ETag fuerte.
+ * Se guarda en cache para no repetir ni la consulta ni la serializacion.
+ * Si la fila tiene version, el ETag empieza con ella ("3-<hash>") y sirve como If-Match.
+ */
+public record CachedJson(byte[] body, String etag) {
+
+    public static CachedJson of(byte[] body) {
+        return of(body, null);
+    }
+
+    public static CachedJson of(byte[] body, Long version) {
+        String hash = DigestUtils.md5DigestAsHex(body);
+        return new CachedJson(body, "\"" + (version != null ? version + "-" + hash : hash) + "\"");
+    }
+}
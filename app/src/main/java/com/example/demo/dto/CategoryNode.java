@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Categoria con sus hijas, para GET /api/categories/tree y /{id}/subtree.
+ * productCount no esta aqui: se consulta aparte con /{id}/products.
+ */
+public record CategoryNode(Long id, Long parentId, String name, String slug, int depth,
+                           List<CategoryNode> children) {}
@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+/**
+ * Un paso del camino raiz -> categoria (ancestros y breadcrumb).
+ */
+public record CategoryPathItem(Long id, String name, String slug) {}
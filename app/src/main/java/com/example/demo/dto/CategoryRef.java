@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+/**
+ * Referencia liviana a una categoria dentro de un producto (category.id / category.name).
+ */
+public record CategoryRef(Long id, String name) {}
@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagina de resultados con paginacion por cursor (keyset).
+ * nextCursor es el id del ultimo elemento; null si no hay mas paginas.
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, Long> idOf) {
+        Long next = items.size() < size ? null : idOf.apply(items.get(items.size() - 1));
+        return new CursorPage<>(items, next);
+    }
+}
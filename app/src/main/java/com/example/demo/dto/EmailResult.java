@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+/**
+ * Resultado del envio a un destinatario. id es el que asigna Resend (null en modo
+ * simulado o si la respuesta no lo trae); error es null si se envio.
+ */
+public record EmailResult(Long orderId, String to, String id, String error) {
+
+    public static EmailResult sent(OrderEmail email, String id) {
+        return new EmailResult(email.orderId(), email.to(), id, null);
+    }
+
+    public static EmailResult failed(Long orderId, String to, String error) {
+        return new EmailResult(orderId, to, null, error);
+    }
+
+    public boolean isSent() {
+        return error == null;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+/**
+ * Correo de estado de una orden: destinatario y estado a informar.
+ */
+public record OrderEmail(Long orderId, String to, String status) {}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Cambio de una linea de orden: sin id agrega la linea, con id modifica sus
+ * campos no null y con delete=true la quita. Las lineas no listadas quedan igual.
+ */
+public record OrderItemPatch(Long id, Long productVariantId, Integer quantity, BigDecimal unitPrice,
+                             BigDecimal lineTotal, Boolean delete) {}
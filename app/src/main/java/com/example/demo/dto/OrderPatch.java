@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Cambios parciales de una orden (PATCH). Los campos null no se tocan y
+ * items solo lista las lineas que cambian (ver OrderItemPatch).
+ * version es la esperada; tambien puede venir en el header If-Match.
+ */
+public record OrderPatch(Long userId, String status, BigDecimal grandTotal, Long shippingAddressId,
+                         List<OrderItemPatch> items, Long version) {}
@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ordenes a borrar o archivar: por ids, o por filtro (estado y/o rango
+ * [from, to) de created_at). Con ids los filtros se ignoran.
+ */
+public record OrderSelection(List<Long> ids, String status, LocalDateTime from, LocalDateTime to) {
+
+    public boolean byIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    // Sin ids ni filtros se tomaria la tabla entera: se rechaza
+    public boolean isEmpty() {
+        return !byIds() && status == null && from == null && to == null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Orden para listados: totales y cantidad de items, sin cargar los items.
+ */
+public record OrderSummary(Long id, Long userId, String status, BigDecimal grandTotal,
+                           Long shippingAddressId, LocalDateTime createdAt, int itemCount) {}
@@ -0,0 +1,30 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cambios parciales de un producto (PATCH). Los campos null no se tocan.
+ * version es la esperada; tambien puede venir en el header If-Match.
+ */
+public record ProductPatch(String name, String slug, String description, BigDecimal basePrice, Boolean active,
+                           Long categoryId, Long version) {
+
+    // Atributo de la entidad -> valor nuevo (sin la categoria, que va como referencia)
+    public Map<String, Object> changes() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfSet(changes, "name", name);
+        putIfSet(changes, "slug", slug);
+        putIfSet(changes, "description", description);
+        putIfSet(changes, "basePrice", basePrice);
+        putIfSet(changes, "active", active);
+        return changes;
+    }
+
+    private static void putIfSet(Map<String, Object> changes, String attribute, Object value) {
+        if (value != null) {
+            changes.put(attribute, value);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Respuesta de GET /api/products/search: una pagina de resultados ordenados
+ * por relevancia y los conteos por categoria y por rango de precio.
+ */
+public record ProductSearchResult(String query,
+                                  int total,
+                                  int page,
+                                  int size,
+                                  List<Hit> items,
+                                  List<CategoryFacet> categories,
+                                  List<PriceFacet> prices) {
+
+    // Misma forma que Product para el frontend (category.id / category.name)
+    public record Hit(Long id, String name, String slug, String description,
+                      BigDecimal basePrice, Boolean active, CategoryRef category, double score) {}
+
+    public record CategoryFacet(Long id, String name, int count) {}
+
+    // Rango [from, to); to es null en el ultimo
+    public record PriceFacet(BigDecimal from, BigDecimal to, int count) {}
+}
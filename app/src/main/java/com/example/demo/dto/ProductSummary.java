@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Producto para listados: sin description ni la categoria completa.
+ * La forma de category se mantiene ({id, name}) para el frontend.
+ */
+public record ProductSummary(Long id, String name, String slug, BigDecimal basePrice, Boolean active,
+                             CategoryRef category) {
+
+    // Usado por la consulta JPQL "SELECT new ..."; el nombre se completa con withCategoryName
+    public ProductSummary(Long id, String name, String slug, BigDecimal basePrice, Boolean active, Long categoryId) {
+        this(id, name, slug, basePrice, active, categoryId == null ? null : new CategoryRef(categoryId, null));
+    }
+
+    public ProductSummary withCategoryName(String categoryName) {
+        return category == null ? this
+                : new ProductSummary(id, name, slug, basePrice, active, new CategoryRef(category.id(), categoryName));
+    }
+}
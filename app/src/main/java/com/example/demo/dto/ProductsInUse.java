@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta 409 al borrar productos que tienen variantes: los productos que se
+ * deben desactivar en vez de borrar.
+ */
+public record ProductsInUse(String error, List<Long> productIds) {}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+
+/**
+ * Avance de una exportacion de recibos (GET /api/orders/receipts/exports/{id}).
+ * state: RUNNING, DONE, CANCELLED o FAILED.
+ */
+public record ReceiptExportProgress(String id,
+                                    String state,
+                                    int total,
+                                    int done,
+                                    int failed,
+                                    long bytes,
+                                    Instant startedAt,
+                                    long elapsedMs,
+                                    double receiptsPerSecond) {}
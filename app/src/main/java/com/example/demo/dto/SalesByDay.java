@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas de un dia (todas las ordenes o las de un estado).
+ */
+public record SalesByDay(LocalDate day, Long orders, Long units, BigDecimal revenue) {}
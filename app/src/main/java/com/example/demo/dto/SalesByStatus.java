@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Ventas de un estado de orden en un rango de dias.
+ */
+public record SalesByStatus(String status, Long orders, Long units, BigDecimal revenue) {}
@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Ventas de una variante de producto en un rango de dias.
+ */
+public record SalesByVariant(Long productVariantId, Long orders, Long units, BigDecimal revenue) {}
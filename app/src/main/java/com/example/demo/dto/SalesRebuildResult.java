@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Resultado de reconstruir los acumulados de ventas en [from, to).
+ */
+public record SalesRebuildResult(LocalDate from, LocalDate to, int dailyRows, int variantRows, long millis) {}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reserva creada. El token va en el header Reservation-Token al crear la orden;
+ * si no se usa antes de expiresAt las unidades vuelven al stock.
+ */
+public record StockHold(String token, LocalDateTime expiresAt, List<StockLine> items) {}
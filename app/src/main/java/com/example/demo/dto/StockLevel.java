@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+/**
+ * Stock de una variante: available es lo que se puede vender ahora (suma de los
+ * buckets) y reserved lo apartado en reservas sin vencer. buckets = 0 indica que
+ * la variante no lleva control de stock.
+ */
+public record StockLevel(Long productVariantId, int available, int reserved, int buckets) {}
@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+/**
+ * Unidades de una variante a reservar o descontar.
+ */
+public record StockLine(Long productVariantId, Integer quantity) {}
@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Cuerpo de POST /api/inventory/reservations.
+ */
+public record StockReservationRequest(List<StockLine> items) {}
@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta 409 cuando no alcanza el stock: las variantes que faltan.
+ */
+public record StockShortage(String error, List<Long> productVariantIds) {}
@@ -0,0 +1,7 @@
+package com.example.demo.dto;
+
+/**
+ * Cuerpo de PUT /api/inventory/variants/{id}/stock: unidades disponibles para
+ * la venta, sin contar las que ya estan reservadas.
+ */
+public record StockUpdate(Integer available) {}
@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cambios parciales de un usuario (PATCH). Los campos null no se tocan.
+ * version es la esperada; tambien puede venir en el header If-Match.
+ */
+public record UserPatch(String name, String email, String role, String phone, String passwordHash, Long version) {
+
+    // Atributo de la entidad -> valor nuevo
+    public Map<String, Object> changes() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfSet(changes, "name", name);
+        putIfSet(changes, "email", email);
+        putIfSet(changes, "role", role);
+        putIfSet(changes, "phone", phone);
+        // Como en PUT: una contraseña vacia no reemplaza la actual
+        putIfSet(changes, "passwordHash", passwordHash == null || passwordHash.isEmpty() ? null : passwordHash);
+        return changes;
+    }
+
+    private static void putIfSet(Map<String, Object> changes, String attribute, Object value) {
+        if (value != null) {
+            changes.put(attribute, value);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Usuario para listados (nunca incluye el hash de la contraseña).
+ */
+public record UserSummary(Long id, String name, String email, String role, String phone,
+                          LocalDateTime createdAt) {}
@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta 409 al borrar usuarios que tienen ordenes: los usuarios que no se
+ * pueden borrar.
+ */
+public record UsersInUse(String error, List<Long> userIds) {}
@@ -0,0 +1,42 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Copia de una orden archivada (orders_archive). Las filas las escribe
+ * OrderBulkService con INSERT ... SELECT desde orders; no se usan como entidad.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = @Index(name = "idx_orders_archive_created_at", columnList = "created_at"))
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    private String status;
+
+    @Column(name = "grand_total")
+    private BigDecimal grandTotal;
+
+    @Column(name = "shipping_address_id")
+    private Long shippingAddressId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public String getStatus() { return status; }
+    public BigDecimal getGrandTotal() { return grandTotal; }
+    public Long getShippingAddressId() { return shippingAddressId; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Copia de un item de una orden archivada (order_items_archive).
+ */
+@Entity
+@Table(name = "order_items_archive", indexes = @Index(name = "idx_order_items_archive_order_id", columnList = "order_id"))
+public class ArchivedOrderItem {
+
+    @Id
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_variant_id")
+    private Long productVariantId;
+
+    private Integer quantity;
+
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(name = "line_total")
+    private BigDecimal lineTotal;
+
+    public Long getId() { return id; }
+    public Long getOrderId() { return orderId; }
+    public Long getProductVariantId() { return productVariantId; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getUnitPrice() { return unitPrice; }
+    public BigDecimal getLineTotal() { return lineTotal; }
+}
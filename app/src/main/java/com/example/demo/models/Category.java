@@ -1,9 +1,15 @@
 package com.example.demo.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
+// Product.category es lazy: las categorias pendientes se cargan de a 100 en un IN (...),
+// y Jackson ignora los campos internos del proxy
 @Entity
 @Table(name = "categories")
+@BatchSize(size = 100)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Category {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,49 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import org.hibernate.Length;
+
+import java.time.LocalDateTime;
+
+/**
+ * Respuesta guardada de un POST con Idempotency-Key. La fila se inserta al
+ * empezar la peticion y se completa en la misma transaccion que el cambio,
+ * asi que solo quedan filas de peticiones que terminaron. Las escribe
+ * IdempotencyService con consultas propias; no se guardan con save().
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyKey {
+
+    // Endpoint y clave del cliente, p. ej. "POST /api/orders 3f1c..."
+    @Id
+    @Column(length = 400)
+    private String id;
+
+    // SHA-256 del cuerpo: la misma clave con otro cuerpo no se reproduce
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "response_body", length = Length.LONG32)
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public String getId() { return id; }
+    public String getFingerprint() { return fingerprint; }
+    public Integer getResponseStatus() { return responseStatus; }
+    public String getContentType() { return contentType; }
+    public String getResponseBody() { return responseBody; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+}
@@ -1,15 +1,23 @@
 package com.example.demo.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+// Los UPDATE llevan solo las columnas que cambiaron
+@DynamicUpdate
 @Table(name = "orders")
 public class Order {
+    // Secuencia con bloques de 50 ids: permite que Hibernate agrupe los INSERT en batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
@@ -23,12 +31,24 @@ public class Order {
     @Column(name = "shipping_address_id")
     private Long shippingAddressId;
 
-    @Column(name = "created_at", insertable = false, updatable = false)
+    // La fecha la pone la aplicacion al insertar: los acumulados de ventas la necesitan sin releer la fila
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    // Bloqueo optimista: cada UPDATE lleva "AND version = ?" y la incrementa.
+    // El default llena las filas que ya existian al agregar la columna
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     // Relación: Una orden tiene muchos items
-    @OneToMany(cascade = CascadeType.ALL)
+    // Los items que se quitan de la lista se borran (antes quedaban colgados de la orden)
+    // En listas los items se cargan en lotes (un IN (...) por cada 100 ordenes) en vez de uno por orden
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "order_id", nullable = false) 
+    @BatchSize(size = 100)
     private List<OrderItem> items;
 
     // Getters y Setters
@@ -43,6 +63,7 @@ public class Order {
     public Long getShippingAddressId() { return shippingAddressId; }
     public void setShippingAddressId(Long shippingAddressId) { this.shippingAddressId = shippingAddressId; }
     public LocalDateTime getCreatedAt() { return createdAt; }
+    public Long getVersion() { return version; }
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
 }
\ No newline at end of file
@@ -1,15 +1,20 @@
 package com.example.demo.models;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 
 @Entity
+// Al cambiar una linea se actualizan solo sus columnas modificadas
+@DynamicUpdate
 @Table(name = "order_items")
 public class OrderItem {
+    // Secuencia con bloques de 50 ids: permite que Hibernate agrupe los INSERT en batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_id_seq", allocationSize = 50)
     private Long id;
 
-    // Para simplificar, usamos el ID directo en lugar de crear la clase Variant completa hoy
+    // Id de ProductVariant, sin relacion JPA: las lineas nunca necesitan cargar la variante
     @Column(name = "product_variant_id")
     private Long productVariantId; 
 
@@ -1,17 +1,21 @@
 package com.example.demo.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+// category_id indexado: Postgres no indexa las FK y las consultas por subarbol filtran por ella
+@Table(name = "products", indexes = @Index(name = "idx_products_category_id", columnList = "category_id, id"))
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    // Lazy: los listados usan proyecciones y las paginas la traen con un join (ver ProductRepository)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
@@ -27,6 +31,12 @@ public class Product {
     @Column(name = "created_at", insertable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Version para PATCH con If-Match; las filas previas quedan en 0
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -42,4 +52,5 @@ public class Product {
     public void setBasePrice(BigDecimal basePrice) { this.basePrice = basePrice; }
     public Boolean getActive() { return active; }
     public void setActive(Boolean active) { this.active = active; }
+    public Long getVersion() { return version; }
 }
\ No newline at end of file
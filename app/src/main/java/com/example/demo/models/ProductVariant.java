@@ -0,0 +1,59 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+
+/**
+ * Variante vendible de un producto (talle y color). Es lo que referencian las
+ * lineas de orden en product_variant_id. El stock va aparte, en variant_stock.
+ */
+@Entity
+@Table(name = "product_variants", indexes = @Index(name = "idx_product_variants_product_id", columnList = "product_id"))
+public class ProductVariant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Id directo como en OrderItem: los listados de variantes no necesitan el producto
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false, unique = true, length = 100)
+    private String sku;
+
+    @Column(length = 50)
+    private String size;
+
+    @Column(length = 50)
+    private String color;
+
+    // Null: se vende al base_price del producto
+    @Column(precision = 10, scale = 2)
+    private BigDecimal price;
+
+    private Boolean active;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // Getters y Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+    public String getColor() { return color; }
+    public void setColor(String color) { this.color = color; }
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+    public Long getVersion() { return version; }
+}
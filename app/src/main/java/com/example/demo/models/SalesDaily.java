@@ -0,0 +1,56 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Ventas acumuladas por dia y estado de la orden. La mantiene SalesRollupService
+ * con cada alta, cambio o baja de ordenes; los tableros leen de aca en vez de
+ * recorrer orders.
+ */
+@Entity
+@Table(name = "sales_daily")
+@IdClass(SalesDaily.Key.class)
+public class SalesDaily {
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private String status;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(salesDate, k.salesDate) && Objects.equals(status, k.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(salesDate, status);
+        }
+    }
+
+    // Getters
+    public LocalDate getSalesDate() { return salesDate; }
+    public String getStatus() { return status; }
+    public long getOrderCount() { return orderCount; }
+    public long getUnits() { return units; }
+    public BigDecimal getRevenue() { return revenue; }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Ventas acumuladas por dia, estado de la orden y variante de producto
+ * (suma de los items). Se mantiene junto con SalesDaily.
+ */
+@Entity
+@Table(name = "sales_daily_variant", indexes = {
+        @Index(name = "idx_sales_daily_variant_variant", columnList = "product_variant_id, sales_date")
+})
+@IdClass(SalesDailyVariant.Key.class)
+public class SalesDailyVariant {
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    private String status;
+
+    @Id
+    @Column(name = "product_variant_id")
+    private Long productVariantId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private String status;
+        private Long productVariantId;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(salesDate, k.salesDate) && Objects.equals(status, k.status)
+                    && Objects.equals(productVariantId, k.productVariantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(salesDate, status, productVariantId);
+        }
+    }
+
+    // Getters
+    public LocalDate getSalesDate() { return salesDate; }
+    public String getStatus() { return status; }
+    public Long getProductVariantId() { return productVariantId; }
+    public long getOrderCount() { return orderCount; }
+    public long getUnits() { return units; }
+    public BigDecimal getRevenue() { return revenue; }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unidades apartadas del stock hasta expires_at (carrito o pago en curso). Una
+ * reserva es el conjunto de filas con el mismo token, una por bucket del que se
+ * desconto. Al crear la orden con el token se consumen; si vencen, la tarea de
+ * limpieza las devuelve a su bucket. Las escribe InventoryService.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_token", columnList = "token"),
+        @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String token;
+
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+
+    @Column(nullable = false)
+    private int bucket;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public Long getId() { return id; }
+    public String getToken() { return token; }
+    public Long getVariantId() { return variantId; }
+    public int getBucket() { return bucket; }
+    public int getQuantity() { return quantity; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+}
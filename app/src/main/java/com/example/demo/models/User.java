@@ -1,5 +1,7 @@
 package com.example.demo.models;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 
 @Entity
@@ -16,6 +18,8 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // Se acepta al crear/actualizar pero nunca se devuelve en las respuestas
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "password_hash", nullable = false)
     private String passwordHash;
 
@@ -31,6 +35,12 @@ public class User {
     @Column(name = "updated_at", insertable = false, updatable = false)
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista: dos ediciones concurrentes ya no se pisan
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     // Constructor vacío obligatorio para JPA
     public User() {}
 
@@ -52,4 +62,6 @@ public class User {
 
     public String getPhone() { return phone; }
     public void setPhone(String phone) { this.phone = phone; }
+
+    public Long getVersion() { return version; }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Stock disponible de una variante, repartido en varias filas (buckets). Cada
+ * venta descuenta de un solo bucket, asi que dos checkouts de la misma variante
+ * solo se esperan si caen en la misma fila. El disponible es la suma de los
+ * buckets. Lo escribe InventoryService con sentencias propias; no se guarda con save().
+ */
+@Entity
+@Table(name = "variant_stock")
+@IdClass(VariantStock.Key.class)
+public class VariantStock {
+
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Id
+    private int bucket;
+
+    @Column(nullable = false)
+    private int available;
+
+    public static class Key implements Serializable {
+        private Long variantId;
+        private int bucket;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(variantId, k.variantId) && bucket == k.bucket;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(variantId, bucket);
+        }
+    }
+
+    // Getters
+    public Long getVariantId() { return variantId; }
+    public int getBucket() { return bucket; }
+    public int getAvailable() { return available; }
+}
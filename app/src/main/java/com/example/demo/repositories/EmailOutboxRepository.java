@@ -0,0 +1,40 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Bloquea un lote de correos vencidos; SKIP LOCKED deja que varias instancias drenen en paralelo
+    @Query(value = """
+            SELECT * FROM email_outbox
+            WHERE state = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EmailOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.state = 'SENT', e.sentAt = :now, e.attempts = e.attempts + 1, e.lastError = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.state = :state, e.attempts = e.attempts + 1, e.nextAttemptAt = :next, e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("state") String state,
+                   @Param("next") LocalDateTime next, @Param("error") String error);
+
+    long countByState(String state);
+
+    @Query("SELECT MIN(e.createdAt) FROM EmailOutbox e WHERE e.state = 'PENDING'")
+    LocalDateTime findOldestPendingCreatedAt();
+}
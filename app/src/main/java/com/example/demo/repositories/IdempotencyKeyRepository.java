@@ -0,0 +1,43 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // INSERT directo (save() haria merge): si otra transaccion tiene la misma clave sin
+    // confirmar, espera a que termine y falla por la clave primaria si la confirmo
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (id, fingerprint, created_at, expires_at)
+            VALUES (:id, :fingerprint, :now, :expiresAt)
+            """, nativeQuery = true)
+    int claim(@Param("id") String id, @Param("fingerprint") String fingerprint,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyKey k
+            SET k.responseStatus = :status, k.contentType = :contentType, k.responseBody = :body
+            WHERE k.id = :id
+            """)
+    int complete(@Param("id") String id, @Param("status") int status,
+                 @Param("contentType") String contentType, @Param("body") String body);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.id = :id AND k.expiresAt <= :now")
+    int deleteIfExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
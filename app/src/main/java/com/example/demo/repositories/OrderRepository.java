@@ -1,9 +1,115 @@
 package com.example.demo.repositories;
 
 import com.example.demo.models.Order;
+import com.example.demo.dto.OrderEmail;
+import com.example.demo.dto.OrderSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-}
\ No newline at end of file
+
+    // Orden con sus items en una sola consulta (LEFT JOIN)
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    // Bloque de ordenes con sus items (exportacion de recibos)
+    @EntityGraph(attributePaths = "items")
+    List<Order> findAllWithItemsByIdIn(Collection<Long> ids);
+
+    // Solo los ids de un rango: la exportacion carga las ordenes por bloques a medida que avanza
+    @Query("""
+            SELECT o.id FROM Order o
+            WHERE (:status IS NULL OR o.status = :status)
+              AND (:from IS NULL OR o.createdAt >= :from)
+              AND (:to IS NULL OR o.createdAt < :to)
+            ORDER BY o.id
+            """)
+    List<Long> findIds(@Param("status") String status,
+                       @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to);
+
+    // Siguiente bloque de ids del filtro (keyset): el borrado masivo avanza sin cargar ordenes
+    @Query("""
+            SELECT o.id FROM Order o
+            WHERE o.id > :after
+              AND (:status IS NULL OR o.status = :status)
+              AND (:from IS NULL OR o.createdAt >= :from)
+              AND (:to IS NULL OR o.createdAt < :to)
+            ORDER BY o.id
+            """)
+    List<Long> findIdsAfter(@Param("after") Long after,
+                            @Param("status") String status,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to,
+                            Limit limit);
+
+    // Destinatario y estado de cada orden para el aviso masivo (ordenes sin usuario quedan afuera)
+    @Query("""
+            SELECT new com.example.demo.dto.OrderEmail(o.id, u.email, o.status)
+            FROM Order o JOIN User u ON u.id = o.userId
+            WHERE o.id IN :ids
+            """)
+    List<OrderEmail> findEmails(@Param("ids") Collection<Long> ids);
+
+    // Paginacion keyset: las mas recientes primero, "cursor" es el ultimo id de la pagina anterior
+    @Query("""
+            SELECT o FROM Order o
+            WHERE (:cursor IS NULL OR o.id < :cursor)
+              AND (:status IS NULL OR o.status = :status)
+              AND (:userId IS NULL OR o.userId = :userId)
+              AND (:from IS NULL OR o.createdAt >= :from)
+              AND (:to IS NULL OR o.createdAt < :to)
+            ORDER BY o.id DESC
+            """)
+    List<Order> findPage(@Param("cursor") Long cursor,
+                         @Param("status") String status,
+                         @Param("userId") Long userId,
+                         @Param("from") LocalDateTime from,
+                         @Param("to") LocalDateTime to,
+                         Limit limit);
+
+    // Mismo filtro que findPage pero leyendo con cursor JDBC (usar dentro de una transaccion)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT o FROM Order o
+            WHERE (:status IS NULL OR o.status = :status)
+              AND (:userId IS NULL OR o.userId = :userId)
+              AND (:from IS NULL OR o.createdAt >= :from)
+              AND (:to IS NULL OR o.createdAt < :to)
+            ORDER BY o.id DESC
+            """)
+    Stream<Order> streamAll(@Param("status") String status,
+                            @Param("userId") Long userId,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+
+    // Listado de ordenes: la cantidad de items sale de un COUNT, sin cargar los items
+    @Query("""
+            SELECT new com.example.demo.dto.OrderSummary(o.id, o.userId, o.status, o.grandTotal,
+                   o.shippingAddressId, o.createdAt, SIZE(o.items))
+            FROM Order o
+            ORDER BY o.id
+            """)
+    List<OrderSummary> findAllSummaries();
+
+    // Usuarios que no se pueden borrar: orders.user_id los referencia
+    @Query("SELECT DISTINCT o.userId FROM Order o WHERE o.userId IN :userIds ORDER BY o.userId")
+    List<Long> findUserIdsWithOrders(@Param("userIds") Collection<Long> userIds);
+}
@@ -1,9 +1,91 @@
 package com.example.demo.repositories;
 
+import com.example.demo.dto.ProductSummary;
 import com.example.demo.models.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-}
\ No newline at end of file
+
+    // Detalle: el producto con su categoria en una sola consulta
+    @EntityGraph(attributePaths = "category")
+    Optional<Product> findWithCategoryById(Long id);
+
+    // Paginacion keyset por id ascendente (la categoria viene en el mismo SELECT)
+    @Query("""
+            SELECT p FROM Product p JOIN FETCH p.category
+            WHERE (:cursor IS NULL OR p.id > :cursor)
+              AND (:categoryId IS NULL OR p.category.id = :categoryId)
+              AND (:active IS NULL OR p.active = :active)
+            ORDER BY p.id
+            """)
+    List<Product> findPage(@Param("cursor") Long cursor,
+                           @Param("categoryId") Long categoryId,
+                           @Param("active") Boolean active,
+                           Limit limit);
+
+    // Productos de un subarbol de categorias (ids precalculados por CategoryTreeService)
+    @Query("""
+            SELECT p FROM Product p JOIN FETCH p.category
+            WHERE p.category.id IN :categoryIds
+              AND (:cursor IS NULL OR p.id > :cursor)
+              AND (:active IS NULL OR p.active = :active)
+            ORDER BY p.id
+            """)
+    List<Product> findPageInCategories(@Param("categoryIds") Collection<Long> categoryIds,
+                                       @Param("cursor") Long cursor,
+                                       @Param("active") Boolean active,
+                                       Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT p FROM Product p JOIN FETCH p.category
+            WHERE (:categoryId IS NULL OR p.category.id = :categoryId)
+              AND (:active IS NULL OR p.active = :active)
+            ORDER BY p.id
+            """)
+    Stream<Product> streamAll(@Param("categoryId") Long categoryId,
+                              @Param("active") Boolean active);
+
+    // Carga del indice de busqueda (solo usa el id de la categoria, que no requiere el join)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamForIndex();
+
+    // Listado del catalogo: solo las columnas que muestra la lista, sin join a categories.
+    // El nombre de la categoria lo completa CategoryTreeService desde memoria
+    @Query("""
+            SELECT new com.example.demo.dto.ProductSummary(p.id, p.name, p.slug, p.basePrice, p.active,
+                   p.category.id)
+            FROM Product p
+            ORDER BY p.id
+            """)
+    List<ProductSummary> findAllSummaries();
+
+    // Borrado masivo en un solo DELETE, sin cargar las entidades; cada llamada es su propia transaccion
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id IN :ids")
+    int bulkDelete(@Param("ids") Collection<Long> ids);
+}
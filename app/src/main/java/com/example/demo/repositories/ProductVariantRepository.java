@@ -0,0 +1,24 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.ProductVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+
+    List<ProductVariant> findByProductIdOrderById(Long productId);
+
+    boolean existsBySku(String sku);
+
+    boolean existsByProductId(Long productId);
+
+    // Productos que no se pueden borrar: sus variantes tienen stock y ventas
+    @Query("SELECT DISTINCT v.productId FROM ProductVariant v WHERE v.productId IN :productIds ORDER BY v.productId")
+    List<Long> findProductIdsWithVariants(@Param("productIds") Collection<Long> productIds);
+}
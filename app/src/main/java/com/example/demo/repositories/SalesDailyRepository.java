@@ -0,0 +1,40 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dto.SalesByDay;
+import com.example.demo.dto.SalesByStatus;
+import com.example.demo.models.SalesDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRepository extends JpaRepository<SalesDaily, SalesDaily.Key> {
+
+    // Una fila por dia con ventas en [from, to); el costo depende de los dias, no de las ordenes
+    @Query("""
+            SELECT new com.example.demo.dto.SalesByDay(d.salesDate, SUM(d.orderCount), SUM(d.units), SUM(d.revenue))
+            FROM SalesDaily d
+            WHERE d.salesDate >= :from AND d.salesDate < :to
+              AND (:status IS NULL OR d.status = :status)
+            GROUP BY d.salesDate
+            HAVING SUM(d.orderCount) > 0
+            ORDER BY d.salesDate
+            """)
+    List<SalesByDay> findByDay(@Param("from") LocalDate from,
+                               @Param("to") LocalDate to,
+                               @Param("status") String status);
+
+    @Query("""
+            SELECT new com.example.demo.dto.SalesByStatus(d.status, SUM(d.orderCount), SUM(d.units), SUM(d.revenue))
+            FROM SalesDaily d
+            WHERE d.salesDate >= :from AND d.salesDate < :to
+            GROUP BY d.status
+            HAVING SUM(d.orderCount) > 0
+            ORDER BY d.status
+            """)
+    List<SalesByStatus> findByStatus(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
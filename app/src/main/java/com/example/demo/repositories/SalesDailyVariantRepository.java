@@ -0,0 +1,31 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dto.SalesByVariant;
+import com.example.demo.models.SalesDailyVariant;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesDailyVariantRepository extends JpaRepository<SalesDailyVariant, SalesDailyVariant.Key> {
+
+    // Variantes mas vendidas (por ingresos) en [from, to)
+    @Query("""
+            SELECT new com.example.demo.dto.SalesByVariant(v.productVariantId, SUM(v.orderCount), SUM(v.units), SUM(v.revenue))
+            FROM SalesDailyVariant v
+            WHERE v.salesDate >= :from AND v.salesDate < :to
+              AND (:status IS NULL OR v.status = :status)
+            GROUP BY v.productVariantId
+            HAVING SUM(v.orderCount) > 0
+            ORDER BY SUM(v.revenue) DESC, v.productVariantId
+            """)
+    List<SalesByVariant> findTopVariants(@Param("from") LocalDate from,
+                                         @Param("to") LocalDate to,
+                                         @Param("status") String status,
+                                         Limit limit);
+}
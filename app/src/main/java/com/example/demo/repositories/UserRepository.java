@@ -2,11 +2,59 @@ package com.example.demo.repositories;
 
 
 import com.example.demo.models.User;
+import com.example.demo.dto.UserSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     // Aquí puedes agregar métodos mágicos como:
     // User findByEmail(String email);
-}
\ No newline at end of file
+
+    // Paginacion keyset por id ascendente
+    @Query("""
+            SELECT u FROM User u
+            WHERE (:cursor IS NULL OR u.id > :cursor)
+              AND (:role IS NULL OR u.role = :role)
+            ORDER BY u.id
+            """)
+    List<User> findPage(@Param("cursor") Long cursor,
+                        @Param("role") String role,
+                        Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT u FROM User u
+            WHERE (:role IS NULL OR u.role = :role)
+            ORDER BY u.id
+            """)
+    Stream<User> streamAll(@Param("role") String role);
+
+    @Query("""
+            SELECT new com.example.demo.dto.UserSummary(u.id, u.name, u.email, u.role, u.phone, u.createdAt)
+            FROM User u
+            ORDER BY u.id
+            """)
+    List<UserSummary> findAllSummaries();
+
+    // Borrado masivo en un solo DELETE, sin cargar las entidades; cada llamada es su propia transaccion
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    int bulkDelete(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,175 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.CachedJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache de lectura del catalogo. Guarda el JSON ya serializado con su ETag,
+ * de modo que un acierto no toca la base de datos ni Jackson, y un
+ * If-None-Match que coincide responde 304 sin cuerpo.
+ *
+ * Dentro de una transaccion, evict*() descarta al hacer commit: antes, una
+ * lectura concurrente volveria a cargar las filas viejas. Una carga que empezo
+ * antes del descarte no guarda lo que leyo (ver generation).
+ *
+ * Lo que se guarda se lee siempre del primario, en una transaccion propia de
+ * escritura: el GET corre en una de solo lectura que con replica configurada va
+ * a la replica, y justo despues de un descarte la replica todavia puede devolver
+ * la fila vieja, que quedaria en la cache hasta el proximo cambio.
+ */
+@Service
+public class CatalogCacheService {
+
+    public static final String PRODUCTS = "products";
+    public static final String CATEGORIES = "categories";
+
+    // Clave de la lista completa dentro de cada cache
+    private static final String ALL = "all";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Descartes hechos en cada cache: one() no guarda si cambio mientras cargaba
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ResponseEntity<byte[]> list(String cacheName, WebRequest request, Supplier<?> loader) {
+        Cache cache = cache(cacheName);
+        // Carga atomica: un evict de la clave espera a que termine y descarta lo cargado
+        CachedJson json = cache.get(ALL, () -> onPrimary(() -> serialize(loader.get(), null)));
+        return respond(request, json);
+    }
+
+    public ResponseEntity<byte[]> one(String cacheName, Long id, WebRequest request, Supplier<Optional<?>> loader) {
+        return one(cacheName, id, request, () -> loader.get().map(Object.class::cast), entity -> null);
+    }
+
+    /**
+     * Como {@link #one(String, Long, WebRequest, Supplier)}, con la version de la fila al
+     * principio del ETag para que el cliente pueda devolverlo en el If-Match de un PATCH.
+     */
+    public <T> ResponseEntity<byte[]> one(String cacheName, Long id, WebRequest request,
+                                          Supplier<Optional<T>> loader, Function<T, Long> versionOf) {
+        Cache cache = cache(cacheName);
+        CachedJson json = cache.get(id, CachedJson.class);
+        if (json == null) {
+            long generation = generation(cacheName).get();
+            // Los 404 no se guardan
+            Optional<CachedJson> loaded = onPrimary(
+                    () -> loader.get().map(entity -> serialize(entity, versionOf.apply(entity))));
+            if (loaded.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            json = loaded.get();
+            // Si hubo un descarte durante la carga, lo leido puede ser viejo: se responde sin guardarlo
+            if (generation(cacheName).get() == generation) {
+                cache.putIfAbsent(id, json);
+            }
+        }
+        return respond(request, json);
+    }
+
+    public void evictProduct(Long id) {
+        afterCommit(() -> {
+            Cache products = cache(PRODUCTS);
+            generation(PRODUCTS).incrementAndGet();
+            products.evict(ALL);
+            if (id != null) {
+                products.evict(id);
+            }
+        });
+    }
+
+    // Los productos incluyen su categoria, asi que tambien se descartan
+    public void evictCategory(Long id) {
+        afterCommit(() -> {
+            Cache categories = cache(CATEGORIES);
+            generation(CATEGORIES).incrementAndGet();
+            categories.evict(ALL);
+            if (id != null) {
+                categories.evict(id);
+            }
+            generation(PRODUCTS).incrementAndGet();
+            cache(PRODUCTS).clear();
+        });
+    }
+
+    // Sin transaccion activa la escritura ya se confirmo: se descarta en el momento
+    private static void afterCommit(Runnable evict) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
+
+    // Transaccion nueva y de escritura: el routing la manda al primario. Se serializa
+    // dentro para que las relaciones lazy se carguen con la misma conexion
+    private <T> T onPrimary(Supplier<T> load) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return tx.execute(status -> load.get());
+    }
+
+    private AtomicLong generation(String cacheName) {
+        return generations.computeIfAbsent(cacheName, name -> new AtomicLong());
+    }
+
+    private ResponseEntity<byte[]> respond(WebRequest request, CachedJson json) {
+        if (request.checkNotModified(json.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(json.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.body());
+    }
+
+    private CachedJson serialize(Object value, Long version) {
+        try {
+            return CachedJson.of(objectMapper.writeValueAsBytes(value), version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catalogo", e);
+        }
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache no configurada: " + name);
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.CategoryNode;
+import com.example.demo.dto.CategoryPathItem;
+import com.example.demo.models.Category;
+import com.example.demo.repositories.CategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Arbol de categorias en memoria, construido a partir de parent_id.
+ * Para cada categoria se precalculan sus descendientes y su camino desde la raiz,
+ * asi "productos bajo X" es un solo WHERE category_id IN (...) sin recursion.
+ * Se reconstruye entero en cada escritura de categorias (son pocas filas).
+ */
+@Service
+public class CategoryTreeService {
+
+    /**
+     * Foto inmutable del arbol. Una categoria cuyo padre no existe, o que forma
+     * un ciclo, se trata como raiz.
+     */
+    private record Snapshot(Map<Long, Category> byId,
+                            Map<Long, List<Long>> children,
+                            List<Long> roots,
+                            Map<Long, List<Long>> descendants,
+                            Map<Long, List<Long>> paths) {}
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Descarta la foto actual; la siguiente lectura la reconstruye.
+     */
+    public void refresh() {
+        snapshot = null;
+    }
+
+    public boolean exists(Long id) {
+        return current().byId().containsKey(id);
+    }
+
+    /**
+     * Nombre de cada categoria pedida, sin consultar la base. Si falta alguna
+     * (creada por fuera de la API) se recarga la foto una sola vez.
+     */
+    public Map<Long, String> names(Collection<Long> ids) {
+        Snapshot s = current();
+        if (!s.byId().keySet().containsAll(ids)) {
+            refresh();
+            s = current();
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (Long id : ids) {
+            Category category = s.byId().get(id);
+            if (category != null) {
+                names.put(id, category.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Ids de la categoria y de todas sus descendientes, o vacio si no existe.
+     */
+    public List<Long> subtreeIds(Long id) {
+        return current().descendants().getOrDefault(id, List.of());
+    }
+
+    public List<CategoryNode> tree() {
+        Snapshot s = current();
+        return s.roots().stream().map(root -> node(s, root, 0)).toList();
+    }
+
+    public Optional<CategoryNode> subtree(Long id) {
+        Snapshot s = current();
+        if (!s.byId().containsKey(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(node(s, id, s.paths().get(id).size() - 1));
+    }
+
+    /**
+     * Camino raiz -> categoria, incluida la categoria.
+     */
+    public Optional<List<CategoryPathItem>> breadcrumb(Long id) {
+        Snapshot s = current();
+        List<Long> path = s.paths().get(id);
+        if (path == null) {
+            return Optional.empty();
+        }
+        return Optional.of(path.stream().map(step -> pathItem(s.byId().get(step))).toList());
+    }
+
+    /**
+     * Camino raiz -> padre, sin la categoria.
+     */
+    public Optional<List<CategoryPathItem>> ancestors(Long id) {
+        return breadcrumb(id).map(path -> path.subList(0, path.size() - 1));
+    }
+
+    /**
+     * true si colgar la categoria de newParentId formaria un ciclo
+     * (el nuevo padre es ella misma o una de sus descendientes).
+     */
+    public boolean wouldCreateCycle(Long id, Long newParentId) {
+        return newParentId != null && subtreeIds(id).contains(newParentId);
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                s = snapshot;
+                if (s == null) {
+                    s = build(categoryRepository.findAll());
+                    snapshot = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    private static Snapshot build(List<Category> categories) {
+        Map<Long, Category> byId = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), category);
+        }
+
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        for (Category category : categories) {
+            if (isRoot(category, byId)) {
+                roots.add(category.getId());
+            } else {
+                children.computeIfAbsent(category.getParentId(), k -> new ArrayList<>()).add(category.getId());
+            }
+        }
+        Comparator<Long> byName = Comparator.comparing((Long id) -> String.valueOf(byId.get(id).getName()))
+                .thenComparing(Comparator.naturalOrder());
+        roots.sort(byName);
+        children.values().forEach(list -> list.sort(byName));
+
+        // Recorrido desde cada raiz: el camino es el de su padre mas ella misma
+        Map<Long, List<Long>> paths = new HashMap<>();
+        Map<Long, List<Long>> descendants = new HashMap<>();
+        for (Long root : roots) {
+            walk(root, List.of(), children, paths, descendants);
+        }
+        return new Snapshot(byId, children, List.copyOf(roots), descendants, paths);
+    }
+
+    // Raiz: sin padre, con padre inexistente, o parte de un ciclo
+    private static boolean isRoot(Category category, Map<Long, Category> byId) {
+        Set<Long> seen = new HashSet<>();
+        Long current = category.getId();
+        while (current != null && seen.add(current)) {
+            Category c = byId.get(current);
+            Long parent = c.getParentId();
+            if (parent == null || !byId.containsKey(parent)) {
+                return current.equals(category.getId());
+            }
+            current = parent;
+        }
+        // Ciclo: la categoria de menor id del ciclo hace de raiz
+        return Collections.min(cycle(category.getId(), byId)).equals(category.getId());
+    }
+
+    private static Set<Long> cycle(Long start, Map<Long, Category> byId) {
+        // Avanza hasta entrar al ciclo y luego lo recorre una vez
+        Set<Long> seen = new LinkedHashSet<>();
+        Long current = start;
+        while (seen.add(current)) {
+            current = byId.get(current).getParentId();
+        }
+        Set<Long> cycle = new HashSet<>();
+        while (cycle.add(current)) {
+            current = byId.get(current).getParentId();
+        }
+        return cycle;
+    }
+
+    private static List<Long> walk(Long id, List<Long> parentPath, Map<Long, List<Long>> children,
+                                   Map<Long, List<Long>> paths, Map<Long, List<Long>> descendants) {
+        List<Long> path = new ArrayList<>(parentPath.size() + 1);
+        path.addAll(parentPath);
+        path.add(id);
+        paths.put(id, List.copyOf(path));
+
+        List<Long> subtree = new ArrayList<>();
+        subtree.add(id);
+        for (Long child : children.getOrDefault(id, List.of())) {
+            subtree.addAll(walk(child, path, children, paths, descendants));
+        }
+        descendants.put(id, List.copyOf(subtree));
+        return subtree;
+    }
+
+    private static CategoryNode node(Snapshot s, Long id, int depth) {
+        Category category = s.byId().get(id);
+        List<CategoryNode> children = s.children().getOrDefault(id, List.of()).stream()
+                .map(child -> node(s, child, depth + 1))
+                .toList();
+        return new CategoryNode(category.getId(), category.getParentId(), category.getName(),
+                category.getSlug(), depth, children);
+    }
+
+    private static CategoryPathItem pathItem(Category category) {
+        return new CategoryPathItem(category.getId(), category.getName(), category.getSlug());
+    }
+}
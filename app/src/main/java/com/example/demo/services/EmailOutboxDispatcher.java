@@ -0,0 +1,171 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.EmailResult;
+import com.example.demo.dto.OrderEmail;
+import com.example.demo.models.EmailOutbox;
+import com.example.demo.repositories.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drena la bandeja de salida por lotes. Cada lote se parte en llamadas a
+ * /emails/batch de Resend que se envian con concurrencia acotada.
+ */
+@Component
+@ConditionalOnProperty(name = "app.email.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    @Autowired
+    private EmailOutboxService outboxService;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${app.email.outbox.batch-size:400}")
+    private int batchSize;
+
+    @Value("${resend.batch-size:100}")
+    private int sendBatchSize;
+
+    private final Executor senders;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter dead;
+    private final Timer batchTimer;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public EmailOutboxDispatcher(MeterRegistry registry, Environment environment,
+                                 @Value("${app.email.outbox.concurrency:4}") int concurrency) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Un hilo virtual por envio, con el mismo limite de concurrencia
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("email-sender-");
+            virtual.setVirtualThreads(true);
+            virtual.setConcurrencyLimit(concurrency);
+            this.senders = virtual;
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            this.senders = Executors.newFixedThreadPool(concurrency, r -> {
+                Thread t = new Thread(r, "email-sender-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.sent = Counter.builder("email.outbox.sent").description("Correos enviados").register(registry);
+        this.failed = Counter.builder("email.outbox.failed").description("Intentos fallidos (se reintentan)").register(registry);
+        this.dead = Counter.builder("email.outbox.dead").description("Correos descartados tras agotar intentos").register(registry);
+        this.batchTimer = Timer.builder("email.outbox.batch").description("Duracion de cada lote").register(registry);
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get)
+                .description("Correos pendientes en la bandeja").register(registry);
+        Gauge.builder("email.outbox.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Antiguedad del correo pendiente mas viejo").register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (senders instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.email.outbox.initial-delay-ms:5000}",
+            fixedDelayString = "${app.email.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        // Drena mientras haya lotes completos, luego espera al siguiente ciclo
+        int claimed;
+        do {
+            claimed = dispatchOnce();
+        } while (claimed == batchSize);
+        refreshBacklogMetrics();
+    }
+
+    /**
+     * Envia un lote.
+     *
+     * @return cuantos correos se reclamaron
+     */
+    public int dispatchOnce() {
+        List<EmailOutbox> batch = outboxService.claim(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<List<EmailOutbox>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += sendBatchSize) {
+            chunks.add(batch.subList(from, Math.min(from + sendBatchSize, batch.size())));
+        }
+        batchTimer.record(() -> CompletableFuture.allOf(chunks.stream()
+                .map(chunk -> CompletableFuture.runAsync(() -> send(chunk), senders))
+                .toArray(CompletableFuture[]::new)).join());
+        return batch.size();
+    }
+
+    private void send(List<EmailOutbox> chunk) {
+        List<EmailResult> results;
+        try {
+            results = emailService.sendBatch(chunk.stream()
+                    .map(email -> new OrderEmail(email.getOrderId(), email.getRecipient(), email.getOrderStatus()))
+                    .toList());
+        } catch (RuntimeException e) {
+            // Sin esto el lote quedaria reclamado y se reintentaria cada lease sin contar intentos
+            log.error("Error inesperado enviando {} correos", chunk.size(), e);
+            results = chunk.stream()
+                    .map(email -> EmailResult.failed(email.getOrderId(), email.getRecipient(), e.toString()))
+                    .toList();
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            EmailOutbox email = chunk.get(i);
+            EmailResult result = results.get(i);
+            if (result.isSent()) {
+                sentIds.add(email.getId());
+            } else if (outboxService.markFailed(email, result.error())) {
+                dead.increment();
+                log.warn("Correo descartado tras {} intentos outboxId={} orderId={}",
+                        email.getAttempts() + 1, email.getId(), email.getOrderId());
+            } else {
+                failed.increment();
+            }
+        }
+        // Los enviados se marcan con un solo UPDATE
+        if (!sentIds.isEmpty()) {
+            outboxService.markSent(sentIds);
+            sent.increment(sentIds.size());
+        }
+    }
+
+    private void refreshBacklogMetrics() {
+        pending.set(outboxRepository.countByState(EmailOutbox.PENDING));
+        LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt();
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+    }
+}
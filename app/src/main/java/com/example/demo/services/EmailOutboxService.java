@@ -0,0 +1,89 @@
+package com.example.demo.services;
+
+import com.example.demo.models.EmailOutbox;
+import com.example.demo.models.Order;
+import com.example.demo.repositories.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bandeja de salida de correos (patron outbox).
+ */
+@Service
+public class EmailOutboxService {
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Value("${app.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.email.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    // Tiempo que un lote reclamado queda reservado para quien lo reclamo
+    @Value("${app.email.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    // Siempre dentro de la transaccion que modifica la orden
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EmailOutbox enqueue(Order order, String recipient) {
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox email = new EmailOutbox();
+        email.setOrderId(order.getId());
+        email.setRecipient(recipient);
+        email.setOrderStatus(order.getStatus());
+        email.setCreatedAt(now);
+        email.setNextAttemptAt(now);
+        return outboxRepository.save(email);
+    }
+
+    /**
+     * Reclama hasta "limit" correos vencidos. Quedan reservados durante el lease,
+     * de modo que el envio HTTP ocurre fuera de la transaccion y sin ocupar conexion.
+     */
+    @Transactional
+    public List<EmailOutbox> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> batch = outboxRepository.lockDue(now, limit);
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        batch.forEach(email -> email.setNextAttemptAt(leaseUntil));
+        return batch;
+    }
+
+    @Transactional
+    public void markSent(List<Long> ids) {
+        outboxRepository.markSent(ids, LocalDateTime.now());
+    }
+
+    /**
+     * Reprograma con backoff exponencial, o lo manda a DEAD al agotar los intentos.
+     *
+     * @return true si el correo quedo en DEAD
+     */
+    @Transactional
+    public boolean markFailed(EmailOutbox email, String error) {
+        int attempts = email.getAttempts() + 1;
+        boolean dead = attempts >= maxAttempts;
+        LocalDateTime next = LocalDateTime.now().plus(backoff(attempts));
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        outboxRepository.markFailed(email.getId(), dead ? EmailOutbox.DEAD : EmailOutbox.PENDING, next, message);
+        return dead;
+    }
+
+    // base * 2^(intentos-1), con tope
+    Duration backoff(int attempts) {
+        long seconds = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        return Duration.ofSeconds(Math.min(seconds, backoffMaxSeconds));
+    }
+}
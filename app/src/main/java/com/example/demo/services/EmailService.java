@@ -1,17 +1,82 @@
 package com.example.demo.services;
 
+import com.example.demo.dto.EmailResult;
+import com.example.demo.dto.OrderEmail;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.HtmlUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class EmailService {
 
-    private static final String RESEND_API_URL = "https://api.resend.com/emails";
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+
+    // Se parsea una vez; los marcadores se completan por estado y por orden
+    private static final EmailTemplate ORDER_STATUS_TEMPLATE = EmailTemplate.compile("""
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset="UTF-8">
+                <style>
+                    body { font-family: Arial, sans-serif; background-color: #f5f5f5; margin: 0; padding: 20px; }
+                    .container { max-width: 600px; margin: 0 auto; background: white; border-radius: 10px; overflow: hidden; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
+                    .header { background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); color: white; padding: 30px; text-align: center; }
+                    .header h1 { margin: 0; font-size: 28px; }
+                    .content { padding: 30px; }
+                    .order-info { background: #f8f9fa; border-radius: 8px; padding: 20px; margin: 20px 0; }
+                    .status-badge { display: inline-block; background: {{statusColor}}; color: white; padding: 8px 16px; border-radius: 20px; font-weight: bold; }
+                    .footer { background: #f8f9fa; padding: 20px; text-align: center; color: #666; font-size: 14px; }
+                </style>
+            </head>
+            <body>
+                <div class="container">
+                    <div class="header">
+                        <h1>GymWear Shop</h1>
+                    </div>
+                    <div class="content">
+                        <h2>Actualizacion de tu Pedido</h2>
+                        <div class="order-info">
+                            <p><strong>Numero de Pedido:</strong> #{{orderId}}</p>
+                            <p><strong>Estado:</strong> <span class="status-badge">{{statusText}}</span></p>
+                        </div>
+                        <p>Gracias por tu compra. Te mantendremos informado sobre el estado de tu pedido.</p>
+                    </div>
+                    <div class="footer">
+                        <p>GymWear Shop - Tu tienda de ropa deportiva</p>
+                    </div>
+                </div>
+            </body>
+            </html>
+            """);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // Estados distintos que se guardan en la cache de plantillas (los estados vienen de la base)
+    private static final int MAX_CACHED_STATUSES = 64;
+
+    // orders.status admite NULL: se informa como el valor por defecto de la columna
+    private static final String DEFAULT_STATUS = "pending";
 
     @Value("${resend.api.key:}")
     private String resendApiKey;
@@ -19,49 +84,215 @@ public class EmailService {
     @Value("${resend.from.email:onboarding@resend.dev}")
     private String fromEmail;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Maximo de correos por llamada a /emails/batch (el limite de Resend es 100)
+    @Value("${resend.batch-size:100}")
+    private int batchSize = 100;
+
+    private final String emailsUrl;
+
+    private final String batchUrl;
+
+    private final RestTemplate restTemplate;
+
+    private final MeterRegistry registry;
+
+    // Plantilla con el color y el texto del estado ya aplicados: solo falta el numero de orden
+    private final Map<String, EmailTemplate> templatesByStatus = new ConcurrentHashMap<>();
+
+    // Con timeouts: un proveedor lento no puede dejar hilos colgados indefinidamente
+    public EmailService(RestTemplateBuilder builder, MeterRegistry registry,
+                        @Value("${resend.api.url:https://api.resend.com}") String apiUrl,
+                        @Value("${resend.connect-timeout-ms:2000}") long connectTimeoutMs,
+                        @Value("${resend.read-timeout-ms:5000}") long readTimeoutMs) {
+        this.emailsUrl = apiUrl + "/emails";
+        this.batchUrl = apiUrl + "/emails/batch";
+        this.registry = registry;
+        this.restTemplate = builder
+                .setConnectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .setReadTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
+    }
 
     public void sendOrderConfirmation(String to, Long orderId, String status) {
         if (resendApiKey == null || resendApiKey.isEmpty()) {
-            System.out.println("=== EMAIL (SIMULADO - Sin API Key) ===");
-            System.out.println("To: " + to);
-            System.out.println("Order ID: " + orderId);
-            System.out.println("Status: " + status);
-            System.out.println("======================================");
+            log.info("Correo simulado (sin API key) to={} orderId={} status={}", to, orderId, status);
             return;
         }
 
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + resendApiKey);
-
-            String subject = "GymWear - Pedido #" + orderId + " - " + getStatusText(status);
-            String htmlContent = buildEmailHtml(orderId, status);
-
-            Map<String, Object> body = new HashMap<>();
-            body.put("from", "GymWear Shop <" + fromEmail + ">");
-            body.put("to", new String[]{to});
-            body.put("subject", subject);
-            body.put("html", htmlContent);
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(message(new OrderEmail(orderId, to, status)), headers());
 
             ResponseEntity<String> response = restTemplate.postForEntity(
-                    RESEND_API_URL, request, String.class);
+                    emailsUrl, request, String.class);
 
             if (response.getStatusCode().is2xxSuccessful()) {
-                System.out.println("Email enviado exitosamente a: " + to);
+                outcome = "success";
+                log.info("Correo enviado to={} orderId={} status={}", to, orderId, status);
             } else {
-                System.out.println("Error al enviar email: " + response.getBody());
+                // La bandeja de salida necesita la excepcion para reintentar
+                throw new IllegalStateException("Respuesta " + response.getStatusCode() + ": " + response.getBody());
             }
 
         } catch (Exception e) {
-            System.out.println("Error al enviar email via Resend: " + e.getMessage());
+            countError(e);
+            log.warn("Error enviando correo via Resend to={} orderId={}: {}", to, orderId, e.getMessage());
             throw new RuntimeException("Error enviando email: " + e.getMessage(), e);
+        } finally {
+            // Latencia de la llamada HTTP, incluidos timeouts y errores
+            sample.stop(Timer.builder("resend.requests")
+                    .description("Latencia de las llamadas a Resend")
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Envia los correos en llamadas a /emails/batch de hasta resend.batch-size
+     * destinatarios. Nunca lanza excepcion: devuelve un resultado por correo, en
+     * el mismo orden. Si Resend rechaza un lote por validacion (4xx) se reenvia
+     * uno por uno para aislar al destinatario invalido; ante otros errores todo
+     * el lote queda fallido.
+     */
+    public List<EmailResult> sendBatch(List<OrderEmail> emails) {
+        List<EmailResult> results = new ArrayList<>(emails.size());
+        if (resendApiKey == null || resendApiKey.isEmpty()) {
+            log.info("Lote de {} correos simulado (sin API key)", emails.size());
+            emails.forEach(email -> results.add(EmailResult.sent(email, null)));
+            return results;
+        }
+        for (int from = 0; from < emails.size(); from += batchSize) {
+            results.addAll(sendChunk(emails.subList(from, Math.min(from + batchSize, emails.size()))));
+        }
+        return results;
+    }
+
+    private List<EmailResult> sendChunk(List<OrderEmail> chunk) {
+        // Un correo que no se puede armar falla solo; el resto del lote se envia igual
+        EmailResult[] results = new EmailResult[chunk.size()];
+        List<OrderEmail> valid = new ArrayList<>(chunk.size());
+        List<Map<String, Object>> body = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            OrderEmail email = chunk.get(i);
+            try {
+                body.add(message(email));
+                valid.add(email);
+                positions.add(i);
+            } catch (RuntimeException e) {
+                log.warn("No se pudo armar el correo orderId={}: {}", email.orderId(), e.toString());
+                results[i] = EmailResult.failed(email.orderId(), email.to(), "Correo invalido: " + e);
+            }
+        }
+        if (!valid.isEmpty()) {
+            List<EmailResult> sent = postBatch(valid, body);
+            for (int j = 0; j < sent.size(); j++) {
+                results[positions.get(j)] = sent.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<EmailResult> postBatch(List<OrderEmail> chunk, List<Map<String, Object>> body) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            ResponseEntity<String> response = restTemplate.postForEntity(
+                    batchUrl, new HttpEntity<>(body, headers()), String.class);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new IllegalStateException("Respuesta " + response.getStatusCode() + ": " + response.getBody());
+            }
+            outcome = "success";
+            // {"data":[{"id":...}, ...]} en el mismo orden del pedido
+            JsonNode data = batchIds(response.getBody());
+            List<EmailResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                JsonNode id = data != null ? data.path(i).path("id") : null;
+                results.add(EmailResult.sent(chunk.get(i), id != null && id.isTextual() ? id.asText() : null));
+            }
+            log.info("Lote de {} correos enviado", chunk.size());
+            return results;
+        } catch (HttpClientErrorException e) {
+            countError(e);
+            if (chunk.size() == 1 || e.getStatusCode().value() == 401 || e.getStatusCode().value() == 429) {
+                return failedChunk(chunk, e);
+            }
+            log.warn("Lote de {} correos rechazado ({}), se reenvia uno por uno", chunk.size(), e.getStatusCode());
+            return sendOneByOne(chunk);
+        } catch (Exception e) {
+            countError(e);
+            return failedChunk(chunk, e);
+        } finally {
+            sample.stop(Timer.builder("resend.batch.requests")
+                    .description("Latencia de las llamadas a /emails/batch")
+                    .tag("outcome", outcome)
+                    .register(registry));
+            DistributionSummary.builder("resend.batch.size")
+                    .description("Correos por llamada a /emails/batch")
+                    .register(registry)
+                    .record(chunk.size());
         }
     }
 
+    // Los ids son informativos: si la respuesta no se puede leer el lote igual se envio
+    private static JsonNode batchIds(String body) {
+        try {
+            return body != null ? JSON.readTree(body).path("data") : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private List<EmailResult> sendOneByOne(List<OrderEmail> chunk) {
+        List<EmailResult> results = new ArrayList<>(chunk.size());
+        for (OrderEmail email : chunk) {
+            try {
+                sendOrderConfirmation(email.to(), email.orderId(), email.status());
+                results.add(EmailResult.sent(email, null));
+            } catch (RuntimeException e) {
+                results.add(EmailResult.failed(email.orderId(), email.to(), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private List<EmailResult> failedChunk(List<OrderEmail> chunk, Exception e) {
+        log.warn("Error enviando lote de {} correos via Resend: {}", chunk.size(), e.getMessage());
+        List<EmailResult> results = new ArrayList<>(chunk.size());
+        chunk.forEach(email -> results.add(EmailResult.failed(email.orderId(), email.to(), e.getMessage())));
+        return results;
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + resendApiKey);
+        return headers;
+    }
+
+    private Map<String, Object> message(OrderEmail email) {
+        String status = statusOrDefault(email.status());
+        Map<String, Object> body = new HashMap<>();
+        body.put("from", "GymWear Shop <" + fromEmail + ">");
+        body.put("to", new String[]{email.to()});
+        body.put("subject", "GymWear - Pedido #" + email.orderId() + " - " + getStatusText(status));
+        body.put("html", buildEmailHtml(email.orderId(), status));
+        return body;
+    }
+
+    private static String statusOrDefault(String status) {
+        return status != null ? status : DEFAULT_STATUS;
+    }
+
+    private void countError(Exception e) {
+        Counter.builder("resend.errors")
+                .description("Llamadas a Resend fallidas")
+                .tag("exception", e.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
     private String getStatusText(String status) {
         return switch (status.toLowerCase()) {
             case "pending" -> "Pendiente";
@@ -73,9 +304,8 @@ public class EmailService {
         };
     }
 
-    private String buildEmailHtml(Long orderId, String status) {
-        String statusText = getStatusText(status);
-        String statusColor = switch (status.toLowerCase()) {
+    private String getStatusColor(String status) {
+        return switch (status.toLowerCase()) {
             case "pending" -> "#FFA500";
             case "processing" -> "#2196F3";
             case "shipped" -> "#9C27B0";
@@ -83,42 +313,20 @@ public class EmailService {
             case "cancelled" -> "#F44336";
             default -> "#757575";
         };
+    }
 
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; background-color: #f5f5f5; margin: 0; padding: 20px; }
-                    .container { max-width: 600px; margin: 0 auto; background: white; border-radius: 10px; overflow: hidden; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                    .header { background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%); color: white; padding: 30px; text-align: center; }
-                    .header h1 { margin: 0; font-size: 28px; }
-                    .content { padding: 30px; }
-                    .order-info { background: #f8f9fa; border-radius: 8px; padding: 20px; margin: 20px 0; }
-                    .status-badge { display: inline-block; background: %s; color: white; padding: 8px 16px; border-radius: 20px; font-weight: bold; }
-                    .footer { background: #f8f9fa; padding: 20px; text-align: center; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>GymWear Shop</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Actualizacion de tu Pedido</h2>
-                        <div class="order-info">
-                            <p><strong>Numero de Pedido:</strong> #%d</p>
-                            <p><strong>Estado:</strong> <span class="status-badge">%s</span></p>
-                        </div>
-                        <p>Gracias por tu compra. Te mantendremos informado sobre el estado de tu pedido.</p>
-                    </div>
-                    <div class="footer">
-                        <p>GymWear Shop - Tu tienda de ropa deportiva</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """.formatted(statusColor, orderId, statusText);
+    // Visible en el paquete para los benchmarks
+    String buildEmailHtml(Long orderId, String status) {
+        status = statusOrDefault(status);
+        EmailTemplate template = templatesByStatus.get(status);
+        if (template == null) {
+            template = ORDER_STATUS_TEMPLATE.bind(Map.of(
+                    "statusColor", getStatusColor(status),
+                    "statusText", HtmlUtils.htmlEscape(getStatusText(status))));
+            if (templatesByStatus.size() < MAX_CACHED_STATUSES) {
+                templatesByStatus.putIfAbsent(status, template);
+            }
+        }
+        return template.render(Map.of("orderId", String.valueOf(orderId)));
     }
 }
@@ -0,0 +1,77 @@
+package com.example.demo.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla de texto con marcadores {{nombre}}, separada una sola vez en
+ * segmentos fijos y marcadores. render() solo concatena, sin volver a parsear;
+ * bind() fija algunos marcadores y devuelve otra plantilla (por ejemplo una por
+ * estado de orden) con los segmentos fijos ya unidos.
+ */
+final class EmailTemplate {
+
+    // literals.length == names.length + 1: literal, marcador, literal, ..., literal
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private EmailTemplate(List<String> literals, List<String> names) {
+        this.literals = literals.toArray(String[]::new);
+        this.names = names.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    static EmailTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = text.indexOf("{{", from)) >= 0) {
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Marcador sin cerrar en la posicion " + open);
+            }
+            literals.add(text.substring(from, open));
+            names.add(text.substring(open + 2, close).trim());
+            from = close + 2;
+        }
+        literals.add(text.substring(from));
+        return new EmailTemplate(literals, names);
+    }
+
+    /**
+     * Reemplaza los marcadores presentes en values; los demas quedan para render().
+     */
+    EmailTemplate bind(Map<String, String> values) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder current = new StringBuilder(this.literals[0]);
+        for (int i = 0; i < this.names.length; i++) {
+            String value = values.get(this.names[i]);
+            if (value != null) {
+                current.append(value).append(this.literals[i + 1]);
+            } else {
+                literals.add(current.toString());
+                names.add(this.names[i]);
+                current = new StringBuilder(this.literals[i + 1]);
+            }
+        }
+        literals.add(current.toString());
+        return new EmailTemplate(literals, names);
+    }
+
+    String render(Map<String, String> values) {
+        StringBuilder sb = new StringBuilder(literalLength + names.length * 16);
+        sb.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = values.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Falta el valor de {{" + names[i] + "}}");
+            }
+            sb.append(value).append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+}
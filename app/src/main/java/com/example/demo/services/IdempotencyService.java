@@ -0,0 +1,297 @@
+package com.example.demo.services;
+
+import com.example.demo.models.IdempotencyKey;
+import com.example.demo.repositories.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key para POST que crean o envian algo. La primera peticion con
+ * una clave se ejecuta y su respuesta se guarda en idempotency_keys, en la
+ * misma transaccion que el cambio; las repeticiones reciben esa respuesta sin
+ * volver a ejecutar nada. Delante de la tabla hay una cache en memoria.
+ *
+ * Peticiones simultaneas con la misma clave esperan a la primera: en esta
+ * instancia con un future por clave, entre instancias porque el INSERT de la
+ * clave queda bloqueado hasta que la otra transaccion confirma o se deshace.
+ * Si la otra confirmo, se vuelve a leer la clave con esperas crecientes hasta
+ * ver su respuesta. Los errores de la operacion se propagan tal cual.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Espera entre lecturas de una clave que confirmo otra instancia
+    private static final long MIN_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 500;
+
+    // El INSERT de la clave fallo porque otra transaccion la confirmo primero
+    private static class KeyTakenException extends RuntimeException {
+        KeyTakenException(Throwable cause) {
+            super(null, cause, false, false);
+        }
+    }
+
+    private record StoredResponse(String fingerprint, int status, String contentType, String body) {}
+
+    private record Outcome(ResponseEntity<?> response, StoredResponse stored) {}
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final long waitTimeoutMs;
+    private final Counter executed;
+    private final Counter replayed;
+
+    public IdempotencyService(PlatformTransactionManager transactionManager, MeterRegistry registry,
+                              @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${app.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeoutMs = waitTimeoutMs;
+        // Las entradas no viven mas que la fila: la cache nunca reproduce una clave ya vencida
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.executed = Counter.builder("idempotency.requests").tag("result", "executed")
+                .description("Peticiones con Idempotency-Key ejecutadas").register(registry);
+        this.replayed = Counter.builder("idempotency.requests").tag("result", "replayed")
+                .description("Repeticiones respondidas con la respuesta guardada").register(registry);
+        Gauge.builder("idempotency.in_flight", inFlight, Map::size)
+                .description("Claves en ejecucion en esta instancia").register(registry);
+    }
+
+    /**
+     * @param scope   metodo y ruta; la misma clave en otro endpoint es otra peticion
+     * @param key     valor del header, o null para ejecutar sin idempotencia
+     * @param request cuerpo (o parametros) de la peticion, para detectar una clave reusada
+     * @param action  la operacion; debe unirse a la transaccion actual (@Transactional)
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+        String id = scope + " " + key;
+        String fingerprint = fingerprint(request);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        int conflicts = 0;
+
+        while (true) {
+            StoredResponse stored = completed.getIfPresent(id);
+            if (stored != null) {
+                return replay(stored, fingerprint);
+            }
+
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(id, mine);
+            if (running != null) {
+                // Misma clave en curso en esta instancia: al terminar, la respuesta ya esta en la
+                // cache; si fallo no se guardo nada y la siguiente vuelta la ejecuta esta peticion
+                if (!await(running, deadline)) {
+                    return inProgress();
+                }
+                continue;
+            }
+
+            try {
+                Outcome outcome = transactionTemplate.execute(status -> claimAndRun(id, fingerprint, action, status));
+                if (outcome.stored() != null) {
+                    completed.put(id, outcome.stored());
+                }
+                return outcome.response();
+            } catch (KeyTakenException e) {
+                // Otra instancia confirmo la misma clave mientras esperabamos el INSERT:
+                // la siguiente vuelta lee su respuesta de la tabla
+            } finally {
+                inFlight.remove(id, mine);
+                mine.complete(null);
+            }
+            if (!backOff(++conflicts, deadline)) {
+                return inProgress();
+            }
+        }
+    }
+
+    private Outcome claimAndRun(String id, String fingerprint, Supplier<ResponseEntity<?>> action,
+                                TransactionStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<IdempotencyKey> existing = repository.findById(id);
+        if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)) {
+            StoredResponse stored = toStored(existing.get());
+            return new Outcome(replay(stored, fingerprint), stored);
+        }
+        // Una fila vencida que la limpieza aun no borro no cuenta
+        repository.deleteIfExpired(id, now);
+        try {
+            repository.claim(id, fingerprint, now, now.plus(ttl));
+        } catch (DataIntegrityViolationException e) {
+            // Solo este INSERT es el conflicto de la clave; los de la operacion se propagan
+            throw new KeyTakenException(e);
+        }
+
+        ResponseEntity<?> response = action.get();
+        executed.increment();
+        if (response.getStatusCode().is5xxServerError()) {
+            // Un error del servidor no se guarda: el cliente puede reintentar con la misma clave
+            status.setRollbackOnly();
+            return new Outcome(response, null);
+        }
+        StoredResponse stored = store(fingerprint, response);
+        repository.complete(id, stored.status(), stored.contentType(), stored.body());
+        return new Outcome(response, stored);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(HEADER + " ya usada con otra peticion");
+        }
+        replayed.increment();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.contentType(MediaType.parseMediaType(stored.contentType()));
+        }
+        return response.body(stored.body());
+    }
+
+    private StoredResponse store(String fingerprint, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        MediaType contentType = response.getHeaders().getContentType();
+        String text;
+        if (body == null) {
+            text = null;
+        } else if (body instanceof String value) {
+            text = value;
+            contentType = contentType != null ? contentType : new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+        } else {
+            // Mismo ObjectMapper que usa MVC: la repeticion devuelve el mismo JSON
+            text = toJson(body);
+            contentType = contentType != null ? contentType : MediaType.APPLICATION_JSON;
+        }
+        return new StoredResponse(fingerprint, response.getStatusCode().value(),
+                contentType != null ? contentType.toString() : null, text);
+    }
+
+    private static StoredResponse toStored(IdempotencyKey row) {
+        return new StoredResponse(row.getFingerprint(), row.getResponseStatus(), row.getContentType(), row.getResponseBody());
+    }
+
+    private boolean await(CompletableFuture<Void> running, long deadline) {
+        try {
+            running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * La primera relectura es inmediata; despues espera 10, 20, 40... ms (hasta
+     * 500, con variacion al azar para no sincronizar a los que esperan).
+     *
+     * @return false si se agoto el tiempo de espera
+     */
+    private static boolean backOff(int conflicts, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        if (conflicts == 1) {
+            return true;
+        }
+        long max = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(conflicts - 2, 10));
+        long millis = ThreadLocalRandom.current().nextLong(max / 2, max + 1);
+        try {
+            Thread.sleep(Math.min(millis, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ResponseEntity<?> inProgress() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("Retry-After", "1")
+                .body("Hay otra peticion con la misma " + HEADER + " en curso");
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.idempotency.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        repository.deleteExpired(LocalDateTime.now());
+    }
+}
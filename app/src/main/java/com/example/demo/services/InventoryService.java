@@ -0,0 +1,512 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.StockHold;
+import com.example.demo.dto.StockLevel;
+import com.example.demo.dto.StockLine;
+import com.example.demo.models.OrderItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock de variantes (variant_stock) y reservas con vencimiento
+ * (stock_reservations).
+ *
+ * El stock de cada variante esta repartido en buckets y cada linea se descuenta
+ * de un bucket elegido al azar entre los que alcanzan, asi los checkouts de un
+ * mismo SKU muy vendido bloquean filas distintas. Todas las lineas de una orden
+ * se descuentan con un unico UPDATE condicional (available >= cantidad); si
+ * otro checkout vacio un bucket entre la lectura y el UPDATE, el UPDATE toca
+ * menos filas de las esperadas, se vuelve al savepoint y se reintenta con el
+ * stock releido. El ultimo intento bloquea los buckets de las variantes y
+ * descuenta sobre valores exactos, de modo que una orden solo se rechaza si de
+ * verdad no hay stock.
+ *
+ * Las variantes sin filas en variant_stock no llevan control de stock. Una
+ * orden tiene descontadas sus lineas mientras no este cancelada: editar sus
+ * lineas, cancelarla o borrarla pasa por adjust() y restockOrders().
+ */
+@Service
+public class InventoryService {
+
+    // Header de POST /api/orders con el token de una reserva previa
+    public static final String RESERVATION_HEADER = "Reservation-Token";
+
+    // Estado de orden que no tiene stock descontado
+    public static final String CANCELLED_STATUS = "cancelled";
+
+    /**
+     * No hay stock para alguna variante. La transaccion se deshace entera: ni la
+     * orden ni los descuentos de otras lineas quedan.
+     */
+    public static class InsufficientStockException extends RuntimeException {
+        private final List<Long> productVariantIds;
+
+        public InsufficientStockException(List<Long> productVariantIds) {
+            super("Sin stock suficiente para las variantes " + productVariantIds);
+            this.productVariantIds = productVariantIds;
+        }
+
+        public List<Long> getProductVariantIds() { return productVariantIds; }
+    }
+
+    private record Bucket(long variantId, int bucket, int available) {}
+
+    // Unidades descontadas de (o devueltas a) un bucket
+    private record Take(long variantId, int bucket, int quantity) {}
+
+    private static final Comparator<Take> TAKE_ORDER =
+            Comparator.comparingLong(Take::variantId).thenComparingInt(Take::bucket);
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final int buckets;
+    private final int maxAttempts;
+    private final Duration reservationTtl;
+    private final Counter allocated;
+    private final Counter rejected;
+    private final Counter retries;
+    private final Counter expired;
+
+    public InventoryService(DataSource dataSource, MeterRegistry registry,
+                            @Value("${app.inventory.buckets:8}") int buckets,
+                            @Value("${app.inventory.max-attempts:4}") int maxAttempts,
+                            @Value("${app.inventory.reservation-ttl:10m}") Duration reservationTtl) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.buckets = Math.max(1, buckets);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.reservationTtl = reservationTtl;
+        this.allocated = Counter.builder("inventory.allocations").tag("result", "allocated")
+                .description("Descuentos de stock confirmados (ordenes y reservas)").register(registry);
+        this.rejected = Counter.builder("inventory.allocations").tag("result", "rejected")
+                .description("Ordenes y reservas rechazadas por falta de stock").register(registry);
+        this.retries = Counter.builder("inventory.allocation.retries")
+                .description("Intentos repetidos porque otro checkout vacio el bucket elegido").register(registry);
+        this.expired = Counter.builder("inventory.reservations.expired")
+                .description("Filas de reservas vencidas devueltas al stock").register(registry);
+    }
+
+    /**
+     * Descuenta el stock de las lineas de una orden nueva. Con token, primero
+     * consume la reserva: lo reservado de mas vuelve al stock y lo que falte se
+     * descuenta como una compra sin reserva. Una reserva vencida que la limpieza
+     * todavia no devolvio sigue valiendo.
+     *
+     * @throws InsufficientStockException si no alcanza el stock de alguna variante
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void allocate(List<OrderItem> items, String reservationToken) {
+        Map<Long, Integer> needed = new TreeMap<>();
+        if (items != null) {
+            for (OrderItem item : items) {
+                add(needed, item.getProductVariantId(), item.getQuantity());
+            }
+        }
+
+        List<Take> surplus = new ArrayList<>();
+        if (reservationToken != null) {
+            // FOR UPDATE: si la limpieza ya tomo estas filas, se espera a que termine y no aparecen
+            List<Take> held = lockReservation(reservationToken);
+            for (Take take : held) {
+                int stillNeeded = needed.getOrDefault(take.variantId(), 0);
+                int used = Math.min(stillNeeded, take.quantity());
+                needed.put(take.variantId(), stillNeeded - used);
+                if (used < take.quantity()) {
+                    surplus.add(new Take(take.variantId(), take.bucket(), take.quantity() - used));
+                }
+            }
+            jdbc.update("DELETE FROM stock_reservations WHERE token = ?", reservationToken);
+        }
+        needed.values().removeIf(quantity -> quantity <= 0);
+        decrement(needed);
+        restock(surplus);
+    }
+
+    /**
+     * Cantidades por variante que una orden tiene descontadas: sus lineas, o
+     * nada si esta cancelada.
+     */
+    public static Map<Long, Integer> held(String status, List<OrderItem> items) {
+        Map<Long, Integer> held = new TreeMap<>();
+        if (items != null && !CANCELLED_STATUS.equals(status)) {
+            for (OrderItem item : items) {
+                add(held, item.getProductVariantId(), item.getQuantity());
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Lleva el stock de una orden que cambia de "before" a "after" (ver held()):
+     * descuenta lo que la orden suma y devuelve lo que quita.
+     *
+     * @throws InsufficientStockException si no alcanza el stock para lo que se suma
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjust(Map<Long, Integer> before, Map<Long, Integer> after) {
+        Map<Long, Integer> needed = new TreeMap<>();
+        Map<Long, Integer> returned = new TreeMap<>();
+        Set<Long> variants = new HashSet<>(before.keySet());
+        variants.addAll(after.keySet());
+        for (Long variantId : variants) {
+            int delta = after.getOrDefault(variantId, 0) - before.getOrDefault(variantId, 0);
+            if (delta > 0) {
+                needed.put(variantId, delta);
+            } else if (delta < 0) {
+                returned.put(variantId, -delta);
+            }
+        }
+        decrement(needed);
+        giveBack(returned);
+    }
+
+    /**
+     * Devuelve al stock las lineas de las ordenes no canceladas, antes de
+     * borrarlas por conjunto.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restockOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> returned = new TreeMap<>();
+        namedJdbc.query("""
+                        SELECT i.product_variant_id, SUM(i.quantity) AS quantity
+                        FROM order_items i JOIN orders o ON o.id = i.order_id
+                        WHERE o.id IN (:ids) AND (o.status IS NULL OR o.status <> :cancelled)
+                          AND i.product_variant_id IS NOT NULL AND i.quantity > 0
+                        GROUP BY i.product_variant_id
+                        """,
+                Map.of("ids", orderIds, "cancelled", CANCELLED_STATUS),
+                rs -> {
+                    returned.put(rs.getLong("product_variant_id"), rs.getInt("quantity"));
+                });
+        giveBack(returned);
+    }
+
+    /**
+     * Aparta stock hasta que vence la reserva.
+     *
+     * @throws InsufficientStockException si no alcanza el stock de alguna variante
+     */
+    @Transactional
+    public StockHold hold(List<StockLine> lines) {
+        Map<Long, Integer> needed = new TreeMap<>();
+        for (StockLine line : lines) {
+            add(needed, line.productVariantId(), line.quantity());
+        }
+        if (needed.isEmpty()) {
+            throw new IllegalArgumentException("La reserva no tiene lineas con cantidad");
+        }
+        List<Take> taken = decrement(needed);
+
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(reservationTtl);
+        jdbc.batchUpdate("""
+                        INSERT INTO stock_reservations (token, variant_id, bucket, quantity, created_at, expires_at)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """,
+                taken.stream()
+                        .map(take -> new Object[]{token, take.variantId(), take.bucket(), take.quantity(), now, expiresAt})
+                        .toList());
+        List<StockLine> items = needed.entrySet().stream()
+                .map(e -> new StockLine(e.getKey(), e.getValue()))
+                .toList();
+        return new StockHold(token, expiresAt, items);
+    }
+
+    /**
+     * Cancela una reserva y devuelve sus unidades.
+     *
+     * @return false si el token no existe (ya se uso, vencio o nunca existio)
+     */
+    @Transactional
+    public boolean release(String token) {
+        List<Take> held = lockReservation(token);
+        if (held.isEmpty()) {
+            return false;
+        }
+        restock(held);
+        jdbc.update("DELETE FROM stock_reservations WHERE token = ?", token);
+        return true;
+    }
+
+    /**
+     * Devuelve al stock hasta "limit" filas de reservas vencidas. SKIP LOCKED
+     * saltea las que un checkout esta consumiendo en ese momento.
+     *
+     * @return filas liberadas
+     */
+    @Transactional
+    public int releaseExpired(int limit) {
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+                SELECT id, variant_id, bucket, quantity FROM stock_reservations
+                WHERE expires_at <= ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """, LocalDateTime.now(), limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        restock(rows.stream()
+                .map(row -> new Take(((Number) row.get("variant_id")).longValue(),
+                        ((Number) row.get("bucket")).intValue(), ((Number) row.get("quantity")).intValue()))
+                .toList());
+        namedJdbc.update("DELETE FROM stock_reservations WHERE id IN (:ids)",
+                Map.of("ids", rows.stream().map(row -> ((Number) row.get("id")).longValue()).toList()));
+        expired.increment(rows.size());
+        return rows.size();
+    }
+
+    /**
+     * Fija las unidades disponibles de una variante (sin contar las reservadas)
+     * repartidas en partes iguales entre app.inventory.buckets filas. Los buckets
+     * existentes no se borran: las reservas guardan de que bucket descontaron.
+     */
+    @Transactional
+    public StockLevel setAvailable(Long variantId, int available) {
+        return setAvailable(variantId, available, buckets);
+    }
+
+    @Transactional
+    public StockLevel setAvailable(Long variantId, int available, int bucketCount) {
+        if (available < 0) {
+            throw new IllegalArgumentException("El stock no puede ser negativo");
+        }
+        int existing = jdbc.queryForList(
+                "SELECT bucket FROM variant_stock WHERE variant_id = ? ORDER BY bucket FOR UPDATE",
+                Integer.class, variantId).size();
+        int count = Math.max(existing, Math.max(1, bucketCount));
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (int bucket = 0; bucket < count; bucket++) {
+            int share = available / count + (bucket < available % count ? 1 : 0);
+            (bucket < existing ? updates : inserts).add(new Object[]{share, variantId, bucket});
+        }
+        jdbc.batchUpdate("UPDATE variant_stock SET available = ? WHERE variant_id = ? AND bucket = ?", updates);
+        jdbc.batchUpdate("INSERT INTO variant_stock (available, variant_id, bucket) VALUES (?, ?, ?)", inserts);
+        return stockLevel(variantId);
+    }
+
+    @Transactional(readOnly = true)
+    public StockLevel stockLevel(Long variantId) {
+        Map<String, Object> stock = jdbc.queryForMap(
+                "SELECT COUNT(*) AS buckets, COALESCE(SUM(available), 0) AS available FROM variant_stock WHERE variant_id = ?",
+                variantId);
+        Number reserved = jdbc.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE variant_id = ? AND expires_at > ?",
+                Number.class, variantId, LocalDateTime.now());
+        return new StockLevel(variantId, ((Number) stock.get("available")).intValue(),
+                reserved.intValue(), ((Number) stock.get("buckets")).intValue());
+    }
+
+    private static void add(Map<Long, Integer> needed, Long variantId, Integer quantity) {
+        // Una cantidad negativa no puede usarse para sumar stock
+        if (variantId != null && quantity != null && quantity > 0) {
+            needed.merge(variantId, quantity, Integer::sum);
+        }
+    }
+
+    private List<Take> lockReservation(String token) {
+        return jdbc.query("""
+                        SELECT variant_id, bucket, quantity FROM stock_reservations
+                        WHERE token = ?
+                        ORDER BY id
+                        FOR UPDATE
+                        """,
+                (rs, i) -> new Take(rs.getLong("variant_id"), rs.getInt("bucket"), rs.getInt("quantity")),
+                token);
+    }
+
+    /**
+     * Descuenta las cantidades de las variantes con control de stock.
+     *
+     * @return de que buckets salio cada unidad
+     */
+    private List<Take> decrement(Map<Long, Integer> needed) {
+        if (needed.isEmpty()) {
+            return List.of();
+        }
+        for (int attempt = 1; ; attempt++) {
+            boolean last = attempt == maxAttempts;
+            try {
+                // Savepoint propio: JpaTransactionManager no anida transacciones
+                List<Take> taken = jdbc.execute((ConnectionCallback<List<Take>>) connection -> {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        List<Take> plan = plan(needed, last);
+                        if (plan.isEmpty() || conditionalDecrement(plan) == plan.size()) {
+                            connection.releaseSavepoint(savepoint);
+                            return plan;
+                        }
+                        // Algun bucket ya no alcanza: se deshacen los descuentos de este intento
+                        connection.rollback(savepoint);
+                        return null;
+                    } catch (RuntimeException e) {
+                        connection.rollback(savepoint);
+                        throw e;
+                    }
+                });
+                if (taken != null) {
+                    if (!taken.isEmpty()) {
+                        allocated.increment();
+                    }
+                    return taken;
+                }
+            } catch (PessimisticLockingFailureException e) {
+                // Deadlock o espera de bloqueo agotada: ya se volvio al savepoint
+                if (last) {
+                    throw e;
+                }
+            } catch (InsufficientStockException e) {
+                rejected.increment();
+                throw e;
+            }
+            retries.increment();
+        }
+    }
+
+    /**
+     * Elige los buckets de cada variante. En los intentos normales lee sin
+     * bloquear y elige al azar entre los buckets que alcanzan; en el ultimo
+     * bloquea todos los buckets de las variantes (en orden, sin deadlocks entre
+     * checkouts) y reparte desde el mas lleno.
+     */
+    private List<Take> plan(Map<Long, Integer> needed, boolean lock) {
+        Map<Long, List<Bucket>> stock = new LinkedHashMap<>();
+        namedJdbc.query("SELECT variant_id, bucket, available FROM variant_stock WHERE variant_id IN (:ids)"
+                        + " ORDER BY variant_id, bucket" + (lock ? " FOR UPDATE" : ""),
+                Map.of("ids", needed.keySet()),
+                rs -> {
+                    Bucket bucket = new Bucket(rs.getLong("variant_id"), rs.getInt("bucket"), rs.getInt("available"));
+                    stock.computeIfAbsent(bucket.variantId(), id -> new ArrayList<>()).add(bucket);
+                });
+
+        List<Long> missing = new ArrayList<>();
+        List<Take> plan = new ArrayList<>();
+        for (Map.Entry<Long, List<Bucket>> entry : stock.entrySet()) {
+            int quantity = needed.get(entry.getKey());
+            List<Bucket> rows = entry.getValue();
+            if (rows.stream().mapToInt(Bucket::available).sum() < quantity) {
+                missing.add(entry.getKey());
+                continue;
+            }
+            List<Bucket> enough = rows.stream().filter(b -> b.available() >= quantity).toList();
+            if (!lock && !enough.isEmpty()) {
+                Bucket bucket = enough.get(ThreadLocalRandom.current().nextInt(enough.size()));
+                plan.add(new Take(bucket.variantId(), bucket.bucket(), quantity));
+                continue;
+            }
+            // Ningun bucket alcanza solo (o es el ultimo intento): se parte la linea
+            int remaining = quantity;
+            for (Bucket bucket : rows.stream().sorted(Comparator.comparingInt(Bucket::available).reversed()).toList()) {
+                if (remaining == 0) {
+                    break;
+                }
+                int take = Math.min(remaining, bucket.available());
+                if (take > 0) {
+                    plan.add(new Take(bucket.variantId(), bucket.bucket(), take));
+                    remaining -= take;
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new InsufficientStockException(missing);
+        }
+        plan.sort(TAKE_ORDER);
+        return plan;
+    }
+
+    // Un UPDATE para todas las lineas; cada fila solo se toca si todavia alcanza
+    private int conditionalDecrement(List<Take> plan) {
+        StringBuilder set = new StringBuilder("UPDATE variant_stock SET available = available - CASE");
+        StringBuilder where = new StringBuilder(" END WHERE ");
+        List<Object> setArgs = new ArrayList<>();
+        List<Object> whereArgs = new ArrayList<>();
+        for (int i = 0; i < plan.size(); i++) {
+            Take take = plan.get(i);
+            set.append(" WHEN variant_id = ? AND bucket = ? THEN ?");
+            setArgs.add(take.variantId());
+            setArgs.add(take.bucket());
+            setArgs.add(take.quantity());
+            where.append(i == 0 ? "" : " OR ").append("(variant_id = ? AND bucket = ? AND available >= ?)");
+            whereArgs.add(take.variantId());
+            whereArgs.add(take.bucket());
+            whereArgs.add(take.quantity());
+        }
+        setArgs.addAll(whereArgs);
+        return jdbc.update(set.append(where).toString(), setArgs.toArray());
+    }
+
+    // Devuelve unidades que no salieron de un bucket conocido: cada variante a uno de sus buckets al azar
+    private void giveBack(Map<Long, Integer> returned) {
+        if (returned.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Integer>> bucketsByVariant = new TreeMap<>();
+        namedJdbc.query("SELECT variant_id, bucket FROM variant_stock WHERE variant_id IN (:ids)",
+                Map.of("ids", returned.keySet()),
+                rs -> {
+                    bucketsByVariant.computeIfAbsent(rs.getLong("variant_id"), id -> new ArrayList<>())
+                            .add(rs.getInt("bucket"));
+                });
+        List<Take> takes = new ArrayList<>();
+        bucketsByVariant.forEach((variantId, rows) -> takes.add(new Take(variantId,
+                rows.get(ThreadLocalRandom.current().nextInt(rows.size())), returned.get(variantId))));
+        restock(takes);
+    }
+
+    // Devuelve unidades a sus buckets en un UPDATE, sumando las que van a la misma fila
+    private void restock(Collection<Take> takes) {
+        Map<Take, Integer> byBucket = new TreeMap<>(TAKE_ORDER);
+        for (Take take : takes) {
+            byBucket.merge(new Take(take.variantId(), take.bucket(), 0), take.quantity(), Integer::sum);
+        }
+        if (byBucket.isEmpty()) {
+            return;
+        }
+        StringBuilder set = new StringBuilder("UPDATE variant_stock SET available = available + CASE");
+        StringBuilder where = new StringBuilder(" END WHERE ");
+        List<Object> setArgs = new ArrayList<>();
+        List<Object> whereArgs = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<Take, Integer> entry : byBucket.entrySet()) {
+            Take key = entry.getKey();
+            set.append(" WHEN variant_id = ? AND bucket = ? THEN ?");
+            setArgs.add(key.variantId());
+            setArgs.add(key.bucket());
+            setArgs.add(entry.getValue());
+            where.append(i++ == 0 ? "" : " OR ").append("(variant_id = ? AND bucket = ?)");
+            whereArgs.add(key.variantId());
+            whereArgs.add(key.bucket());
+        }
+        setArgs.addAll(whereArgs);
+        jdbc.update(set.append(where).toString(), setArgs.toArray());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Escribe resultados de un cursor JDBC directamente en la respuesta,
+ * en bloques pequeños, sin construir la lista completa en memoria.
+ */
+@Service
+public class JsonStreamService {
+
+    // Coincide con el fetch size de los repositorios y el @BatchSize de las colecciones
+    private static final int CHUNK_SIZE = 100;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> StreamingResponseBody jsonArray(Supplier<Stream<T>> source) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        return out -> {
+            // El stream solo vive dentro de una transaccion de lectura
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<T> rows = source.get();
+                     JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                    gen.writeStartArray();
+                    // Se escribe por bloques: las colecciones lazy del bloque se cargan en un solo IN (...)
+                    List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+                    Iterator<T> it = rows.iterator();
+                    while (it.hasNext()) {
+                        chunk.add(it.next());
+                        if (chunk.size() == CHUNK_SIZE) {
+                            writeChunk(writer, gen, chunk);
+                        }
+                    }
+                    writeChunk(writer, gen, chunk);
+                    gen.writeEndArray();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+    }
+
+    private <T> void writeChunk(ObjectWriter writer, JsonGenerator gen, List<T> chunk) throws IOException {
+        for (T row : chunk) {
+            writer.writeValue(gen, row);
+        }
+        chunk.clear();
+        // Soltar las entidades para que el contexto de persistencia no crezca
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.demo.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportacion completa de tablas en NDJSON (un objeto JSON por linea), para
+ * sincronizaciones y conciliaciones. Lee con un cursor JDBC de solo lectura
+ * y escribe cada fila con el generador de Jackson, sin pasar por entidades:
+ * la memoria usada depende del fetch size, no del tamaño de la tabla.
+ */
+@Service
+public class NdjsonExportService {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Escribe una fila del cursor; end() cierra lo que haya quedado abierto
+    private interface RowWriter {
+        void row(ResultSet rs, JsonGenerator gen) throws SQLException, IOException;
+
+        default void end(JsonGenerator gen) throws IOException {}
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 es un rechazo explicito
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Una linea por orden, con sus items, en orden de id. Los items salen del
+     * mismo cursor (LEFT JOIN ordenado por orden): no hay una consulta por orden.
+     */
+    public StreamingResponseBody orders(String status, Long userId, LocalDateTime from, LocalDateTime to,
+                                        boolean gzip) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        addCondition(conditions, args, "o.status = ?", status);
+        addCondition(conditions, args, "o.user_id = ?", userId);
+        addCondition(conditions, args, "o.created_at >= ?", from);
+        addCondition(conditions, args, "o.created_at < ?", to);
+        String sql = """
+                SELECT o.id, o.user_id, o.status, o.grand_total, o.shipping_address_id, o.created_at, o.version,
+                       i.id AS item_id, i.product_variant_id, i.quantity, i.unit_price, i.line_total
+                FROM orders o LEFT JOIN order_items i ON i.order_id = o.id
+                """ + where(conditions) + " ORDER BY o.id, i.id";
+
+        return export(sql, args, gzip, new RowWriter() {
+            private long current = -1;
+
+            @Override
+            public void row(ResultSet rs, JsonGenerator gen) throws SQLException, IOException {
+                long id = rs.getLong("id");
+                if (id != current) {
+                    end(gen);
+                    current = id;
+                    gen.writeStartObject();
+                    gen.writeNumberField("id", id);
+                    writeLong(gen, "userId", rs, "user_id");
+                    gen.writeStringField("status", rs.getString("status"));
+                    writeDecimal(gen, "grandTotal", rs, "grand_total");
+                    writeLong(gen, "shippingAddressId", rs, "shipping_address_id");
+                    writeTimestamp(gen, "createdAt", rs, "created_at");
+                    gen.writeNumberField("version", rs.getLong("version"));
+                    gen.writeArrayFieldStart("items");
+                }
+                long itemId = rs.getLong("item_id");
+                if (!rs.wasNull()) {
+                    gen.writeStartObject();
+                    gen.writeNumberField("id", itemId);
+                    writeLong(gen, "productVariantId", rs, "product_variant_id");
+                    gen.writeNumberField("quantity", rs.getInt("quantity"));
+                    writeDecimal(gen, "unitPrice", rs, "unit_price");
+                    writeDecimal(gen, "lineTotal", rs, "line_total");
+                    gen.writeEndObject();
+                }
+            }
+
+            @Override
+            public void end(JsonGenerator gen) throws IOException {
+                if (current != -1) {
+                    gen.writeEndArray();
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                }
+            }
+        });
+    }
+
+    // Una linea por producto; la categoria va como categoryId, sin el objeto completo
+    public StreamingResponseBody products(Long categoryId, Boolean active, boolean gzip) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        addCondition(conditions, args, "category_id = ?", categoryId);
+        addCondition(conditions, args, "active = ?", active);
+        String sql = """
+                SELECT id, category_id, name, slug, description, base_price, active, created_at, version
+                FROM products
+                """ + where(conditions) + " ORDER BY id";
+
+        return export(sql, args, gzip, (rs, gen) -> {
+            gen.writeStartObject();
+            gen.writeNumberField("id", rs.getLong("id"));
+            gen.writeNumberField("categoryId", rs.getLong("category_id"));
+            gen.writeStringField("name", rs.getString("name"));
+            gen.writeStringField("slug", rs.getString("slug"));
+            gen.writeStringField("description", rs.getString("description"));
+            writeDecimal(gen, "basePrice", rs, "base_price");
+            boolean isActive = rs.getBoolean("active");
+            if (rs.wasNull()) {
+                gen.writeNullField("active");
+            } else {
+                gen.writeBooleanField("active", isActive);
+            }
+            writeTimestamp(gen, "createdAt", rs, "created_at");
+            gen.writeNumberField("version", rs.getLong("version"));
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        });
+    }
+
+    private StreamingResponseBody export(String sql, List<Object> args, boolean gzip,
+                                         RowWriter writer) {
+        return out -> {
+            // syncFlush: cada flush manda lo comprimido hasta ahi, no espera a llenar el buffer
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192, true) : out;
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.setFetchSize(fetchSize);
+            // Sin autocommit (transaccion) PostgreSQL usa un cursor de verdad y trae fetchSize filas por vez
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(target)) {
+                // Las lineas ya terminan en \n; sin el espacio que Jackson pone entre valores raiz
+                gen.setRootValueSeparator(null);
+                tx.executeWithoutResult(status -> jdbc.query(sql, new RowCallbackHandler() {
+                    private long rows;
+
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        try {
+                            writer.row(rs, gen);
+                            // La primera fila sale enseguida; despues, una vez por bloque del cursor
+                            if (++rows == 1 || rows % fetchSize == 0) {
+                                gen.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }, args.toArray()));
+                writer.end(gen);
+            }
+        };
+    }
+
+    private static void addCondition(List<String> conditions, List<Object> args, String condition, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            args.add(value);
+        }
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void writeLong(JsonGenerator gen, String field, ResultSet rs, String column)
+            throws SQLException, IOException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            gen.writeNullField(field);
+        } else {
+            gen.writeNumberField(field, value);
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator gen, String field, ResultSet rs, String column)
+            throws SQLException, IOException {
+        BigDecimal value = rs.getBigDecimal(column);
+        if (value == null) {
+            gen.writeNullField(field);
+        } else {
+            gen.writeNumberField(field, value);
+        }
+    }
+
+    // Mismo formato ISO que las entidades (LocalDateTime con el ObjectMapper de la app)
+    private static void writeTimestamp(JsonGenerator gen, String field, ResultSet rs, String column)
+            throws SQLException, IOException {
+        Timestamp value = rs.getTimestamp(column);
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeObject(value.toLocalDateTime());
+        }
+    }
+}
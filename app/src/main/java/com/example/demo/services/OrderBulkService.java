@@ -0,0 +1,140 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.BulkDeleteResult;
+import com.example.demo.dto.OrderSelection;
+import com.example.demo.repositories.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Borrado y archivado masivo de ordenes con sentencias por conjunto
+ * (INSERT ... SELECT y DELETE ... WHERE id IN), sin cargar ordenes ni items en
+ * Hibernate. Cada bloque de app.bulk.chunk-size ordenes es una transaccion:
+ * los acumulados de ventas, el stock devuelto, la copia al archivo y el
+ * borrado se confirman juntos, y un error solo deshace el bloque en curso.
+ * Archivar no devuelve stock ni resta de los acumulados: las ordenes archivadas
+ * se vendieron.
+ */
+@Service
+public class OrderBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBulkService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    @Autowired
+    private InventoryService inventory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.bulk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public BulkDeleteResult delete(OrderSelection selection) {
+        return run(selection, false);
+    }
+
+    // Copia las ordenes y sus items a orders_archive / order_items_archive y las borra
+    public BulkDeleteResult archive(OrderSelection selection) {
+        return run(selection, true);
+    }
+
+    private BulkDeleteResult run(OrderSelection selection, boolean archive) {
+        long start = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        int archived = 0;
+        int items = 0;
+        int chunks = 0;
+
+        if (selection.byIds()) {
+            List<Long> ids = selection.ids().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                int[] rows = tx.execute(status -> removeChunk(chunk, archive));
+                deleted += rows[0];
+                archived += rows[1];
+                items += rows[2];
+                chunks++;
+            }
+        } else {
+            long after = 0;
+            while (true) {
+                List<Long> chunk = orderRepository.findIdsAfter(after, selection.status(), selection.from(),
+                        selection.to(), Limit.of(chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                int[] rows = tx.execute(status -> removeChunk(chunk, archive));
+                deleted += rows[0];
+                archived += rows[1];
+                items += rows[2];
+                chunks++;
+                after = chunk.get(chunk.size() - 1);
+            }
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("{} masivo de ordenes: {} ordenes y {} items en {} bloques, {} ms",
+                archive ? "Archivado" : "Borrado", deleted, items, chunks, millis);
+        return new BulkDeleteResult(deleted, archived, items, chunks, millis);
+    }
+
+    // {ordenes borradas, ordenes archivadas, items borrados}
+    private int[] removeChunk(List<Long> ids, boolean archive) {
+        // Primero los acumulados y el stock: se calculan desde las filas que se van a borrar.
+        // Una orden archivada sigue siendo una venta: conserva su stock y su aporte a los acumulados
+        if (!archive) {
+            salesRollups.subtractOrders(ids);
+            inventory.restockOrders(ids);
+        }
+
+        int archived = 0;
+        if (archive) {
+            archived = entityManager.createNativeQuery("""
+                            INSERT INTO orders_archive (id, user_id, status, grand_total, shipping_address_id,
+                                                        created_at, archived_at)
+                            SELECT id, user_id, status, grand_total, shipping_address_id, created_at, :now
+                            FROM orders WHERE id IN (:ids)
+                            """)
+                    .setParameter("now", LocalDateTime.now())
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            entityManager.createNativeQuery("""
+                            INSERT INTO order_items_archive (id, order_id, product_variant_id, quantity,
+                                                             unit_price, line_total)
+                            SELECT id, order_id, product_variant_id, quantity, unit_price, line_total
+                            FROM order_items WHERE order_id IN (:ids)
+                            """)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+
+        int items = entityManager.createNativeQuery("DELETE FROM order_items WHERE order_id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        int deleted = entityManager.createNativeQuery("DELETE FROM orders WHERE id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return new int[]{deleted, archived, items};
+    }
+}
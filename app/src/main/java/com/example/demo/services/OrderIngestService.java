@@ -0,0 +1,174 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.BulkIngestResponse;
+import com.example.demo.dto.BulkResult;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Carga masiva de ordenes. Lee la entrada (array JSON o NDJSON) en streaming y
+ * guarda por bloques, una transaccion por bloque con INSERT en batch.
+ * Las ordenes importadas no generan correos pero si cuentan en los acumulados
+ * de ventas y descuentan stock; una orden sin stock falla sola.
+ */
+@Service
+public class OrderIngestService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    @Autowired
+    private InventoryService inventory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.orders.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    public BulkIngestResponse ingest(InputStream in) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(Order.class);
+        List<BulkResult> results = new ArrayList<>();
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        List<Integer> indexes = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        // Un array en la raiz se recorre elemento por elemento, igual que NDJSON
+        try (MappingIterator<Order> it = reader.readValues(in)) {
+            while (true) {
+                Order order;
+                try {
+                    if (!it.hasNextValue()) {
+                        break;
+                    }
+                    order = it.nextValue();
+                } catch (JsonParseException e) {
+                    // JSON roto: no se puede seguir leyendo la entrada
+                    results.add(BulkResult.failed(index, "JSON invalido: " + e.getOriginalMessage()));
+                    break;
+                } catch (JsonMappingException e) {
+                    // Registro con campos invalidos: se descarta y se sigue con el siguiente
+                    results.add(BulkResult.failed(index++, e.getOriginalMessage()));
+                    continue;
+                }
+
+                String error = validate(order);
+                if (error != null) {
+                    results.add(BulkResult.failed(index++, error));
+                    continue;
+                }
+                chunk.add(order);
+                indexes.add(index++);
+                if (chunk.size() == chunkSize) {
+                    persist(chunk, indexes, results);
+                }
+            }
+        }
+        persist(chunk, indexes, results);
+
+        results.sort(Comparator.comparingInt(BulkResult::index));
+        return BulkIngestResponse.of(results);
+    }
+
+    private String validate(Order order) {
+        if (order == null) {
+            return "Registro vacio";
+        }
+        if (order.getStatus() == null) {
+            order.setStatus("pending");
+        }
+        if (order.getId() != null) {
+            return "La orden no debe traer id";
+        }
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                if (item.getId() != null) {
+                    return "Los items no deben traer id";
+                }
+                if (item.getQuantity() == null || item.getQuantity() < 1) {
+                    return "Cantidad invalida en un item";
+                }
+            }
+        }
+        return null;
+    }
+
+    private void persist(List<Order> chunk, List<Integer> indexes, List<BulkResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            tx.executeWithoutResult(status -> save(chunk));
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(BulkResult.created(indexes.get(i), chunk.get(i).getId()));
+            }
+        } catch (RuntimeException chunkError) {
+            // Algun registro rompio el bloque: se reintenta uno por uno para aislarlo
+            for (int i = 0; i < chunk.size(); i++) {
+                Order order = chunk.get(i);
+                resetIds(order);
+                try {
+                    tx.executeWithoutResult(status -> save(List.of(order)));
+                    results.add(BulkResult.created(indexes.get(i), order.getId()));
+                } catch (RuntimeException e) {
+                    results.add(BulkResult.failed(indexes.get(i),
+                            NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+                }
+            }
+        }
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private void save(List<Order> orders) {
+        for (Order order : orders) {
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        // Un descuento para todo el bloque; si falta stock, el reintento uno por uno aisla la orden
+        inventory.allocate(orders.stream()
+                .filter(order -> !InventoryService.CANCELLED_STATUS.equals(order.getStatus()) && order.getItems() != null)
+                .flatMap(order -> order.getItems().stream())
+                .toList(), null);
+        // Un upsert por dia/estado/variante del bloque, no uno por orden (created_at ya esta asignado)
+        SalesRollupService.Delta delta = new SalesRollupService.Delta();
+        orders.forEach(delta::add);
+        salesRollups.apply(delta);
+        // Sin esto el contexto de persistencia crece con cada bloque
+        entityManager.clear();
+    }
+
+    // Los ids asignados en un intento fallido no sirven para el siguiente
+    private void resetIds(Order order) {
+        order.setId(null);
+        if (order.getItems() != null) {
+            order.getItems().forEach(item -> item.setId(null));
+        }
+    }
+}
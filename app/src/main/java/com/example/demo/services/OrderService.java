@@ -0,0 +1,224 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.OrderItemPatch;
+import com.example.demo.dto.OrderPatch;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Escrituras de ordenes. Cada cambio y su correo en la bandeja de salida
+ * se confirman en la misma transaccion. El stock tambien: crear descuenta las
+ * lineas, editarlas descuenta o devuelve la diferencia, y cancelar o borrar la
+ * orden devuelve todo.
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailOutboxService emailOutbox;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    @Autowired
+    private InventoryService inventory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public Order create(Order order) {
+        return create(order, null);
+    }
+
+    /**
+     * @param reservationToken reserva de stock a consumir (InventoryService.hold), o null
+     * @throws InventoryService.InsufficientStockException si no alcanza el stock; no se crea nada
+     */
+    @Transactional
+    public Order create(Order order, String reservationToken) {
+        // created_at se asigna al insertar y decide el dia del acumulado
+        Order saved = orderRepository.saveAndFlush(order);
+        enqueueEmail(saved);
+        // Stock y acumulados al final: son las filas que comparten todos los checkouts
+        // y quedan bloqueadas hasta el commit
+        // Una orden que ya nace cancelada no descuenta (la reserva, si hay, vuelve al stock)
+        inventory.allocate(InventoryService.CANCELLED_STATUS.equals(saved.getStatus()) ? List.of() : saved.getItems(),
+                reservationToken);
+        salesRollups.apply(new SalesRollupService.Delta().add(saved));
+        return saved;
+    }
+
+    /**
+     * @throws InventoryService.InsufficientStockException si las lineas nuevas no tienen stock; no se cambia nada
+     */
+    @Transactional
+    public Optional<Order> update(Long id, Order orderDetails) {
+        return orderRepository.findWithItemsById(id)
+                .map(order -> {
+                    // Se resta el aporte anterior antes de modificar la orden
+                    SalesRollupService.Delta delta = new SalesRollupService.Delta().subtract(order);
+                    Map<Long, Integer> held = InventoryService.held(order.getStatus(), order.getItems());
+                    boolean statusChanged = !Objects.equals(order.getStatus(), orderDetails.getStatus());
+                    order.setUserId(orderDetails.getUserId());
+                    order.setStatus(orderDetails.getStatus());
+                    order.setGrandTotal(orderDetails.getGrandTotal());
+                    if (orderDetails.getItems() != null) {
+                        // Se reemplaza el contenido, no la coleccion: Hibernate borra los items quitados
+                        order.getItems().clear();
+                        order.getItems().addAll(orderDetails.getItems());
+                    }
+                    Order saved = orderRepository.save(order);
+                    inventory.adjust(held, InventoryService.held(saved.getStatus(), saved.getItems()));
+                    salesRollups.apply(delta.add(saved));
+                    if (statusChanged) {
+                        enqueueEmail(saved);
+                    }
+                    return saved;
+                });
+    }
+
+    /**
+     * Aplica solo los campos y las lineas que cambian: un UPDATE de orders con
+     * las columnas modificadas (y la version) mas un INSERT, UPDATE o DELETE por
+     * linea tocada, en vez de reescribir todos los items como update().
+     *
+     * @param expectedVersion version que el cliente leyo, o null para no comprobarla
+     * @throws ObjectOptimisticLockingFailureException si la orden cambio desde esa version
+     * @throws IllegalArgumentException si una linea con id no pertenece a la orden
+     * @throws InventoryService.InsufficientStockException si lo que se suma no tiene stock; no se cambia nada
+     */
+    @Transactional
+    public Optional<Order> patch(Long id, Long expectedVersion, OrderPatch patch) {
+        return orderRepository.findWithItemsById(id)
+                .map(order -> {
+                    // Se falla antes de tocar nada; si otro escribe despues, lo detecta el UPDATE ... AND version = ?
+                    if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+                        throw new ObjectOptimisticLockingFailureException(Order.class, id);
+                    }
+                    SalesRollupService.Delta delta = new SalesRollupService.Delta().subtract(order);
+                    Map<Long, Integer> held = InventoryService.held(order.getStatus(), order.getItems());
+                    boolean statusChanged = patch.status() != null && !patch.status().equals(order.getStatus());
+                    if (patch.userId() != null) {
+                        order.setUserId(patch.userId());
+                    }
+                    if (patch.status() != null) {
+                        order.setStatus(patch.status());
+                    }
+                    if (patch.grandTotal() != null) {
+                        order.setGrandTotal(patch.grandTotal());
+                    }
+                    if (patch.shippingAddressId() != null) {
+                        order.setShippingAddressId(patch.shippingAddressId());
+                    }
+                    if (patch.items() != null && !patch.items().isEmpty()) {
+                        patchItems(order, patch.items());
+                        // Cambiar solo una linea no ensucia la orden: se fuerza el incremento de su version
+                        entityManager.lock(order, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                    }
+                    // El flush aqui deja la version nueva en la orden devuelta
+                    Order saved = orderRepository.saveAndFlush(order);
+                    inventory.adjust(held, InventoryService.held(saved.getStatus(), saved.getItems()));
+                    salesRollups.apply(delta.add(saved));
+                    if (statusChanged) {
+                        enqueueEmail(saved);
+                    }
+                    return saved;
+                });
+    }
+
+    private static void patchItems(Order order, List<OrderItemPatch> lines) {
+        for (OrderItemPatch line : lines) {
+            if (line.id() == null) {
+                OrderItem item = new OrderItem();
+                setItemFields(item, line);
+                order.getItems().add(item);
+                continue;
+            }
+            OrderItem item = order.getItems().stream()
+                    .filter(i -> line.id().equals(i.getId()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "La orden " + order.getId() + " no tiene la linea " + line.id()));
+            if (Boolean.TRUE.equals(line.delete())) {
+                // orphanRemoval: solo se borra esta fila
+                order.getItems().remove(item);
+            } else {
+                setItemFields(item, line);
+            }
+        }
+    }
+
+    private static void setItemFields(OrderItem item, OrderItemPatch line) {
+        if (line.productVariantId() != null) {
+            item.setProductVariantId(line.productVariantId());
+        }
+        if (line.quantity() != null) {
+            item.setQuantity(line.quantity());
+        }
+        if (line.unitPrice() != null) {
+            item.setUnitPrice(line.unitPrice());
+        }
+        if (line.lineTotal() != null) {
+            item.setLineTotal(line.lineTotal());
+        }
+    }
+
+    /**
+     * Borra la orden y devuelve al stock sus lineas (si no estaba cancelada).
+     *
+     * @return false si la orden no existe
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        return orderRepository.findWithItemsById(id)
+                .map(order -> {
+                    inventory.adjust(InventoryService.held(order.getStatus(), order.getItems()), Map.of());
+                    orderRepository.delete(order);
+                    salesRollups.apply(new SalesRollupService.Delta().subtract(order));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Encola el correo de estado de la orden.
+     *
+     * @return destinatario, o vacio si la orden no existe o no tiene usuario
+     */
+    @Transactional
+    public Optional<String> requestEmail(Long id) {
+        return orderRepository.findById(id).flatMap(this::enqueueEmail);
+    }
+
+    private Optional<String> enqueueEmail(Order order) {
+        if (order.getUserId() == null) {
+            return Optional.empty();
+        }
+        return userRepository.findById(order.getUserId())
+                .map(user -> {
+                    emailOutbox.enqueue(order, user.getEmail());
+                    return user.getEmail();
+                });
+    }
+}
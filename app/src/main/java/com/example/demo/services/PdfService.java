@@ -2,24 +2,163 @@ package com.example.demo.services;
 
 import com.example.demo.models.Order;
 import com.example.demo.models.OrderItem;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class PdfService {
 
-    public ByteArrayInputStream generateOrderReceipt(Order order) {
+    // Un recibo se identifica por la orden y por el contenido que se imprime
+    private record ReceiptKey(Long orderId, String contentVersion) {}
+
+    private final ThreadPoolExecutor renderExecutor;
+    private final AsyncCache<ReceiptKey, byte[]> receipts;
+    private final Timer renderTimer;
+    private final DistributionSummary receiptSize;
+
+    public PdfService(MeterRegistry registry,
+                      @Value("${app.pdf.render-threads:0}") int renderThreads,
+                      @Value("${app.pdf.render-queue:100}") int renderQueue,
+                      @Value("${app.pdf.cache.max-bytes:67108864}") long cacheMaxBytes) {
+        int threads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        // Pool acotado: si la cola se llena se rechaza (el controller responde 503) en vez de
+        // acumular trabajo y ocupar hilos de Tomcat. Son hilos de plataforma aun con
+        // spring.threads.virtual.enabled: el render es CPU puro y no gana nada con hilos virtuales
+        this.renderExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueue),
+                r -> {
+                    Thread t = new Thread(r, "pdf-render-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // Cache acotada por bytes totales; las versiones viejas de un recibo salen por peso o por inactividad
+        this.receipts = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((ReceiptKey key, byte[] pdf) -> pdf.length)
+                .expireAfterAccess(Duration.ofHours(6))
+                .recordStats()
+                .buildAsync();
+
+        this.renderTimer = Timer.builder("pdf.render")
+                .description("Tiempo de render de un recibo (sin contar la cache)")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.receiptSize = DistributionSummary.builder("pdf.size")
+                .description("Tamaño de los recibos renderizados")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("pdf.render.queue", renderExecutor, e -> e.getQueue().size())
+                .description("Renders esperando un hilo").register(registry);
+        Gauge.builder("pdf.render.active", renderExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Renders en curso").register(registry);
+        CaffeineCacheMetrics.monitor(registry, receipts.synchronous(), "pdfReceipts");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdown();
+    }
+
+    /**
+     * Recibo listo para escribirse en la respuesta.
+     */
+    @FunctionalInterface
+    public interface Receipt {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Devuelve el recibo desde la cache o reserva un render en el pool de PDFs.
+     * El pool solo genera los bytes; {@link Receipt#writeTo} los espera y los escribe
+     * en el hilo de la respuesta, asi un cliente lento no retiene un hilo de render.
+     * Peticiones simultaneas de la misma orden comparten un solo render.
+     * La orden debe venir con sus items ya cargados.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException si el pool esta saturado
+     */
+    public Receipt openOrderReceipt(Order order) {
+        ReceiptKey key = new ReceiptKey(order.getId(), contentVersion(order));
+        CompletableFuture<byte[]> rendered = new CompletableFuture<>();
+        CompletableFuture<byte[]> cached = receipts.getIfPresent(key);
+        if (cached == null) {
+            cached = receipts.asMap().putIfAbsent(key, rendered);
+        }
+        if (cached != null) {
+            CompletableFuture<byte[]> pdf = cached;
+            return out -> out.write(await(pdf));
+        }
+
+        try {
+            renderExecutor.execute(() -> {
+                try {
+                    rendered.complete(generateOrderReceipt(order));
+                } catch (RuntimeException e) {
+                    // La cache descarta los futuros fallidos: el proximo pedido vuelve a intentar
+                    rendered.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            receipts.asMap().remove(key, rendered);
+            rendered.completeExceptionally(e);
+            throw e;
+        }
+        return out -> out.write(await(rendered));
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> pdf) {
+        try {
+            return pdf.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("No se pudo generar el recibo", e.getCause());
+        }
+    }
+
+    public byte[] generateOrderReceipt(Order order) {
+        int items = order.getItems() != null ? order.getItems().size() : 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096 + items * 256);
+        renderTimer.record(() -> writeOrderReceipt(order, out));
+        receiptSize.record(out.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Renderiza el recibo directamente en el stream indicado (respuesta HTTP, ZIP, ...).
+     * El stream no se cierra.
+     */
+    public void writeOrderReceipt(Order order, OutputStream out) {
         Document document = new Document();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
 
         try {
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             document.open();
 
             // 1. Titulo
@@ -105,9 +244,22 @@ public class PdfService {
             document.close();
 
         } catch (DocumentException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("Error generando el recibo de la orden " + order.getId(), e);
         }
+    }
 
-        return new ByteArrayInputStream(out.toByteArray());
+    // Todo lo que aparece en el recibo; si cambia, cambia la version
+    private String contentVersion(Order order) {
+        StringBuilder sb = new StringBuilder()
+                .append(order.getStatus()).append('|')
+                .append(order.getGrandTotal());
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                sb.append('|').append(item.getProductVariantId())
+                        .append(',').append(item.getQuantity())
+                        .append(',').append(item.getUnitPrice());
+            }
+        }
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,103 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.BulkDeleteResult;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.ProductVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Borrado masivo de productos: un DELETE ... WHERE id IN por bloque de
+ * app.bulk.chunk-size, sin cargar los productos. Cada bloque es una
+ * transaccion y, confirmado, sus productos salen de la cache del catalogo y
+ * del indice de busqueda; si un bloque falla, los anteriores ya no se sirven.
+ */
+@Service
+public class ProductBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkService.class);
+
+    /**
+     * Hay productos con variantes: tienen stock y ventas y se desactivan en vez
+     * de borrarse.
+     */
+    public static class ProductsInUseException extends RuntimeException {
+        private final List<Long> productIds;
+
+        public ProductsInUseException(List<Long> productIds) {
+            super("Productos con variantes: " + productIds);
+            this.productIds = productIds;
+        }
+
+        public List<Long> getProductIds() { return productIds; }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private CatalogCacheService catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bulk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * @throws ProductsInUseException si alguno tiene variantes; no se borra ninguno
+     */
+    public BulkDeleteResult delete(List<Long> ids) {
+        long start = System.currentTimeMillis();
+        List<Long> unique = ids.stream().distinct().toList();
+        List<Long> inUse = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            inUse.addAll(variantRepository.findProductIdsWithVariants(
+                    unique.subList(from, Math.min(from + chunkSize, unique.size()))));
+        }
+        if (!inUse.isEmpty()) {
+            throw new ProductsInUseException(inUse);
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        int chunks = 0;
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            List<Long> chunk = unique.subList(from, Math.min(from + chunkSize, unique.size()));
+            try {
+                deleted += tx.execute(status -> productRepository.bulkDelete(chunk));
+            } catch (DataIntegrityViolationException e) {
+                // Se le creo una variante a alguno despues de la comprobacion; los bloques anteriores quedan borrados
+                List<Long> withVariants = variantRepository.findProductIdsWithVariants(chunk);
+                if (withVariants.isEmpty()) {
+                    throw e;
+                }
+                throw new ProductsInUseException(withVariants);
+            }
+            chunk.forEach(id -> {
+                catalogCache.evictProduct(id);
+                searchIndex.remove(id);
+            });
+            chunks++;
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("Borrado masivo de productos: {} productos en {} bloques, {} ms", deleted, chunks, millis);
+        return new BulkDeleteResult(deleted, 0, 0, chunks, millis);
+    }
+}
@@ -0,0 +1,643 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.CategoryRef;
+import com.example.demo.dto.ProductPatch;
+import com.example.demo.dto.ProductSearchResult;
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Indice invertido en memoria sobre name, slug y description de los productos.
+ * Soporta terminos completos, prefijos (busqueda mientras se escribe) y un error
+ * de tipeo por termino (vecindario de borrados). Se carga al arrancar, se
+ * actualiza en cada escritura de ProductController y se reconstruye
+ * periodicamente para recoger cambios hechos por fuera de la API.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Peso de cada campo en el que aparece un termino
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float SLUG_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Factor segun como coincidio el termino de la consulta
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.6f;
+    private static final float TYPO = 0.4f;
+
+    // Un prefijo corto ("c") podria expandirse a todo el vocabulario
+    private static final int MAX_PREFIX_TERMS = 64;
+    // Terminos mas cortos solo coinciden exactos o por prefijo
+    private static final int MIN_TYPO_LENGTH = 4;
+    // Terminos de la consulta que se tienen en cuenta
+    private static final int MAX_QUERY_TERMS = 10;
+    // Maximo de resultados que se pueden paginar (page * size)
+    private static final int MAX_WINDOW = 10_000;
+    private static final int LOAD_CHUNK = 1000;
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            BigDecimal.ZERO, new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("200")
+    };
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    // Lo que se devuelve de cada producto
+    private record Doc(Long id, String name, String slug, String description, BigDecimal basePrice,
+                       Boolean active, Long categoryId) {}
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    // Cambios recibidos mientras se reconstruye; se reaplican sobre el indice nuevo
+    private List<Consumer<Segment>> replay;
+
+    // ==================== ESCRITURAS ====================
+
+    public void index(Product product) {
+        Doc doc = toDoc(product);
+        apply(s -> s.add(doc));
+    }
+
+    // PATCH: se combinan los campos nuevos con el documento ya indexado, sin releer el producto
+    public void patch(Long productId, ProductPatch patch) {
+        apply(s -> {
+            Doc doc = s.doc(productId);
+            if (doc != null) {
+                s.add(new Doc(productId,
+                        orElse(patch.name(), doc.name()),
+                        orElse(patch.slug(), doc.slug()),
+                        orElse(patch.description(), doc.description()),
+                        orElse(patch.basePrice(), doc.basePrice()),
+                        orElse(patch.active(), doc.active()),
+                        orElse(patch.categoryId(), doc.categoryId())));
+            }
+        });
+    }
+
+    public void remove(Long productId) {
+        apply(s -> s.remove(productId));
+    }
+
+    public void putCategory(Long id, String name) {
+        apply(s -> s.categoryNames.put(id, name));
+    }
+
+    public void removeCategory(Long id) {
+        apply(s -> s.categoryNames.remove(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.search.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Segment fresh = new Segment();
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean loaded = false;
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                for (Category category : categoryRepository.findAll()) {
+                    fresh.categoryNames.put(category.getId(), category.getName());
+                }
+                try (Stream<Product> products = productRepository.streamForIndex()) {
+                    int[] count = {0};
+                    products.forEach(product -> {
+                        fresh.add(toDoc(product));
+                        // El indice guarda sus propias copias; las entidades no hacen falta
+                        if (++count[0] % LOAD_CHUNK == 0) {
+                            entityManager.clear();
+                        }
+                    });
+                }
+            });
+            loaded = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // Si la carga fallo se sigue sirviendo el indice anterior
+                if (loaded) {
+                    replay.forEach(change -> change.accept(fresh));
+                    segment = fresh;
+                }
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Indice de busqueda: {} productos, {} terminos en {} ms",
+                fresh.liveCount, fresh.postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void apply(Consumer<Segment> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(segment);
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== BUSQUEDA ====================
+
+    /**
+     * Busca productos que contengan todos los terminos de la consulta (exactos, por
+     * prefijo o con un error de tipeo). Con consulta vacia devuelve todo el catalogo
+     * filtrado. Los facets de categoria ignoran el filtro de categoria y los de precio
+     * el de precio, para que el usuario vea cuanto obtendria al cambiarlos.
+     *
+     * @param categoryIds categorias aceptadas (una categoria y sus descendientes), o null
+     */
+    public ProductSearchResult search(String query, Collection<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Boolean active, int page, int size) {
+        List<String> tokens = tokenize(query);
+        if (tokens.size() > MAX_QUERY_TERMS) {
+            tokens = tokens.subList(0, MAX_QUERY_TERMS);
+        }
+        double min = minPrice != null ? minPrice.doubleValue() : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice.doubleValue() : Double.POSITIVE_INFINITY;
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        byte activeFlag = flag(active);
+
+        lock.readLock().lock();
+        try {
+            Segment s = segment;
+            boolean[] allowedCategories = null;
+            if (categoryIds != null) {
+                allowedCategories = new boolean[s.categoryIds.size()];
+                for (Long id : categoryIds) {
+                    Integer ordinal = s.categoryOrdinals.get(id);
+                    if (ordinal != null) {
+                        allowedCategories[ordinal] = true;
+                    }
+                }
+            }
+
+            Match match = tokens.isEmpty() ? null : s.match(tokens);
+            int candidates = match != null ? match.count() : s.size;
+
+            int[] categoryCounts = new int[s.categoryIds.size()];
+            int[] priceCounts = new int[PRICE_BOUNDS.length];
+            TopK top = new TopK(Math.min((page + 1) * size, MAX_WINDOW),
+                    match != null ? match.scores() : null, s.ids);
+            int total = 0;
+
+            for (int i = 0; i < candidates; i++) {
+                int ord = match != null ? match.ordinals()[i] : i;
+                if (!s.live[ord] || (activeFlag != 0 && s.active[ord] != activeFlag)) {
+                    continue;
+                }
+                int category = s.categories[ord];
+                double price = s.prices[ord];
+                boolean inCategory = allowedCategories == null || (category >= 0 && allowedCategories[category]);
+                boolean inPrice = !priceFilter || (price >= min && price <= max);
+                if (inPrice && category >= 0) {
+                    categoryCounts[category]++;
+                }
+                if (inCategory) {
+                    int bucket = priceBucket(price);
+                    if (bucket >= 0) {
+                        priceCounts[bucket]++;
+                    }
+                }
+                if (inCategory && inPrice) {
+                    total++;
+                    top.offer(ord);
+                }
+            }
+
+            int[] ranked = top.sorted();
+            List<ProductSearchResult.Hit> items = new ArrayList<>(size);
+            for (int i = page * size; i < ranked.length && items.size() < size; i++) {
+                int ord = ranked[i];
+                items.add(toHit(s, s.docs[ord], match != null ? match.scores()[ord] : 0f));
+            }
+
+            List<ProductSearchResult.CategoryFacet> categories = new ArrayList<>();
+            for (int c = 0; c < categoryCounts.length; c++) {
+                if (categoryCounts[c] > 0) {
+                    Long id = s.categoryIds.get(c);
+                    categories.add(new ProductSearchResult.CategoryFacet(id, s.categoryNames.get(id), categoryCounts[c]));
+                }
+            }
+            categories.sort(Comparator.comparingInt(ProductSearchResult.CategoryFacet::count).reversed()
+                    .thenComparing(ProductSearchResult.CategoryFacet::id));
+
+            List<ProductSearchResult.PriceFacet> prices = new ArrayList<>(PRICE_BOUNDS.length);
+            for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+                BigDecimal to = i + 1 < PRICE_BOUNDS.length ? PRICE_BOUNDS[i + 1] : null;
+                prices.add(new ProductSearchResult.PriceFacet(PRICE_BOUNDS[i], to, priceCounts[i]));
+            }
+
+            return new ProductSearchResult(query, total, page, size, items, categories, prices);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // NaN (sin precio) no cae en ningun rango
+    private static int priceBucket(double price) {
+        for (int i = PRICE_BOUNDS.length - 1; i >= 0; i--) {
+            if (price >= PRICE_BOUNDS[i].doubleValue()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte flag(Boolean active) {
+        return active == null ? 0 : active ? (byte) 1 : (byte) 2;
+    }
+
+    private static ProductSearchResult.Hit toHit(Segment s, Doc doc, float score) {
+        CategoryRef category = doc.categoryId() == null ? null
+                : new CategoryRef(doc.categoryId(), s.categoryNames.get(doc.categoryId()));
+        return new ProductSearchResult.Hit(doc.id(), doc.name(), doc.slug(), doc.description(),
+                doc.basePrice(), doc.active(), category, Math.round(score * 1000) / 1000.0);
+    }
+
+    private static <T> T orElse(T value, T current) {
+        return value != null ? value : current;
+    }
+
+    private static Doc toDoc(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        return new Doc(product.getId(), product.getName(), product.getSlug(), product.getDescription(),
+                product.getBasePrice(), product.getActive(), categoryId);
+    }
+
+    // Termino -> peso; cada campo suma su peso una sola vez por termino
+    private static Map<String, Float> terms(Doc doc) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, doc.name(), NAME_WEIGHT);
+        addField(terms, doc.slug(), SLUG_WEIGHT);
+        addField(terms, doc.description(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String term : new HashSet<>(tokenize(text))) {
+            terms.merge(term, weight, Float::sum);
+        }
+    }
+
+    /**
+     * Minusculas, sin acentos y separado por todo lo que no sea letra o digito
+     * ("Camiseta Térmica dry-fit" -> camiseta, termica, dry, fit).
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Todas las variantes distintas con un caracter menos ("running" -> "unning", "rnning", "runing", ...)
+    private static Set<String> deletes(String term) {
+        Set<String> variants = new HashSet<>(term.length() * 2);
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // Distancia de edicion <= 1 (insercion, borrado, sustitucion o transposicion)
+    private static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la < lb ? a.substring(i).equals(b.substring(i + 1)) : a.substring(i + 1).equals(b.substring(i));
+    }
+
+    // Ordinales que coincidieron con todos los terminos y su puntaje (indexado por ordinal)
+    private record Match(int[] ordinals, int count, float[] scores) {}
+
+    /**
+     * Lista de (ordinal, peso) de un termino, en orden de insercion.
+     */
+    private static final class Posting {
+        private int[] ordinals = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int ordinal, float weight) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ordinals[size] = ordinal;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * Los mejores k ordinales por puntaje (desc) e id (asc), con un heap de enteros
+     * para no crear un objeto por candidato.
+     */
+    private static final class TopK {
+        private final int[] heap;
+        private final float[] scores;
+        private final long[] ids;
+        private int size;
+
+        TopK(int k, float[] scores, long[] ids) {
+            this.heap = new int[Math.max(k, 1)];
+            this.scores = scores;
+            this.ids = ids;
+        }
+
+        // true si a va despues que b en el ranking
+        private boolean worse(int a, int b) {
+            float sa = scores != null ? scores[a] : 0f;
+            float sb = scores != null ? scores[b] : 0f;
+            return sa < sb || (sa == sb && ids[a] > ids[b]);
+        }
+
+        void offer(int ordinal) {
+            if (size < heap.length) {
+                heap[size] = ordinal;
+                siftUp(size++);
+            } else if (worse(heap[0], ordinal)) {
+                heap[0] = ordinal;
+                siftDown(0, size);
+            }
+        }
+
+        // Vacia el heap: el peor queda al final en cada paso
+        int[] sorted() {
+            int[] result = new int[size];
+            for (int n = size; n > 0; n--) {
+                result[n - 1] = heap[0];
+                heap[0] = heap[n - 1];
+                siftDown(0, n - 1);
+            }
+            size = 0;
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!worse(heap[i], heap[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int n) {
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < n && worse(heap[left], heap[worst])) {
+                    worst = left;
+                }
+                if (right < n && worse(heap[right], heap[worst])) {
+                    worst = right;
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Estado del indice. Solo se modifica con el write lock tomado (o antes de publicarse).
+     * Cada version de un producto ocupa un ordinal nuevo; los anteriores quedan
+     * marcados como borrados y se descartan en la siguiente reconstruccion.
+     */
+    private static final class Segment {
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private Doc[] docs = new Doc[1024];
+        private long[] ids = new long[1024];
+        private double[] prices = new double[1024];
+        private int[] categories = new int[1024];
+        private byte[] active = new byte[1024];
+        private boolean[] live = new boolean[1024];
+        private int size;
+        private int liveCount;
+
+        private final TreeMap<String, Posting> postings = new TreeMap<>();
+        // Variante con un borrado -> terminos que la generan
+        private final Map<String, Set<String>> deletions = new HashMap<>();
+        // Categorias en arrays densos para contar facets sin boxing
+        private final Map<Long, Integer> categoryOrdinals = new HashMap<>();
+        private final List<Long> categoryIds = new ArrayList<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+
+        void add(Doc doc) {
+            remove(doc.id());
+            if (size == ids.length) {
+                int capacity = size * 2;
+                docs = Arrays.copyOf(docs, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                active = Arrays.copyOf(active, capacity);
+                live = Arrays.copyOf(live, capacity);
+            }
+            int ord = size++;
+            docs[ord] = doc;
+            ids[ord] = doc.id();
+            prices[ord] = doc.basePrice() != null ? doc.basePrice().doubleValue() : Double.NaN;
+            categories[ord] = doc.categoryId() == null ? -1
+                    : categoryOrdinals.computeIfAbsent(doc.categoryId(), id -> {
+                        categoryIds.add(id);
+                        return categoryIds.size() - 1;
+                    });
+            active[ord] = flag(doc.active());
+            live[ord] = true;
+            ordinals.put(doc.id(), ord);
+            liveCount++;
+
+            terms(doc).forEach((term, weight) -> {
+                Posting posting = postings.get(term);
+                if (posting == null) {
+                    posting = new Posting();
+                    postings.put(term, posting);
+                    if (term.length() >= MIN_TYPO_LENGTH) {
+                        for (String variant : deletes(term)) {
+                            deletions.computeIfAbsent(variant, k -> new HashSet<>(2)).add(term);
+                        }
+                    }
+                }
+                posting.add(ord, weight);
+            });
+        }
+
+        Doc doc(Long id) {
+            Integer ord = ordinals.get(id);
+            return ord != null ? docs[ord] : null;
+        }
+
+        void remove(Long id) {
+            Integer ord = ordinals.remove(id);
+            if (ord != null) {
+                live[ord] = false;
+                docs[ord] = null;
+                liveCount--;
+            }
+        }
+
+        /**
+         * Productos que coinciden con todos los tokens, con su puntaje
+         * (suma por token de peso del campo * tipo de coincidencia * idf).
+         */
+        Match match(List<String> tokens) {
+            float[] scores = new float[size];
+            float[] best = new float[size];
+            byte[] matched = new byte[size];
+            int[] touched = new int[64];
+            int count = 0;
+
+            for (int t = 0; t < tokens.size(); t++) {
+                count = 0;
+                for (Map.Entry<String, Float> expansion : expand(tokens.get(t)).entrySet()) {
+                    Posting posting = postings.get(expansion.getKey());
+                    float factor = expansion.getValue() * (float) Math.log(1.0 + (double) liveCount / posting.size);
+                    for (int k = 0; k < posting.size; k++) {
+                        int ord = posting.ordinals[k];
+                        // Solo siguen los que coincidieron con todos los tokens anteriores
+                        if (matched[ord] != t || !live[ord]) {
+                            continue;
+                        }
+                        float value = posting.weights[k] * factor;
+                        if (best[ord] == 0f) {
+                            if (count == touched.length) {
+                                touched = Arrays.copyOf(touched, count * 2);
+                            }
+                            touched[count++] = ord;
+                        }
+                        if (value > best[ord]) {
+                            best[ord] = value;
+                        }
+                    }
+                }
+                if (count == 0) {
+                    return new Match(touched, 0, scores);
+                }
+                for (int i = 0; i < count; i++) {
+                    int ord = touched[i];
+                    scores[ord] += best[ord];
+                    best[ord] = 0f;
+                    matched[ord]++;
+                }
+            }
+            return new Match(touched, count, scores);
+        }
+
+        // Terminos del vocabulario que cuentan como coincidencia del token, con su factor
+        private Map<String, Float> expand(String token) {
+            Map<String, Float> expansions = new HashMap<>();
+            if (postings.containsKey(token)) {
+                expansions.put(token, EXACT);
+            }
+            if (token.length() >= 2) {
+                int taken = 0;
+                for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                    if (taken++ == MAX_PREFIX_TERMS) {
+                        break;
+                    }
+                    expansions.putIfAbsent(term, PREFIX);
+                }
+            }
+            if (token.length() >= MIN_TYPO_LENGTH) {
+                Set<String> candidates = new HashSet<>(deletions.getOrDefault(token, Set.of()));
+                for (String variant : deletes(token)) {
+                    if (postings.containsKey(variant)) {
+                        candidates.add(variant);
+                    }
+                    candidates.addAll(deletions.getOrDefault(variant, Set.of()));
+                }
+                for (String term : candidates) {
+                    if (withinOneEdit(token, term)) {
+                        expansions.putIfAbsent(term, TYPO);
+                    }
+                }
+            }
+            return expansions;
+        }
+    }
+}
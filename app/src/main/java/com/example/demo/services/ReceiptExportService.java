@@ -0,0 +1,258 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.ReceiptExportProgress;
+import com.example.demo.models.Order;
+import com.example.demo.repositories.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportacion masiva de recibos en un ZIP que se escribe en la respuesta a
+ * medida que cada PDF termina. Los renders corren en paralelo en un pool propio
+ * (no compite con la cola de GET /{id}/pdf) y cada exportacion tiene un maximo
+ * de recibos en vuelo: si el cliente lee lento, se deja de renderizar y la
+ * memoria queda acotada. Si el cliente se desconecta se cancela lo pendiente.
+ */
+@Service
+public class ReceiptExportService {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String FAILED = "FAILED";
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptExportService.class);
+
+    // Ordenes que se leen de la base por consulta
+    private static final int LOAD_BATCH = 100;
+    // Las exportaciones terminadas se pueden consultar durante este tiempo
+    private static final Duration KEEP_FINISHED = Duration.ofHours(1);
+
+    /**
+     * Estado de una exportacion; el controller lo crea con start() y lo pasa a write().
+     */
+    public static final class Export {
+        private final String id = UUID.randomUUID().toString();
+        private final List<Long> orderIds;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile String state = RUNNING;
+        private volatile long elapsedNanos = -1;
+
+        private Export(List<Long> orderIds) {
+            this.orderIds = orderIds;
+        }
+
+        public String getId() { return id; }
+
+        private ReceiptExportProgress progress() {
+            long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+            double seconds = nanos / 1e9;
+            int completed = done.get();
+            return new ReceiptExportProgress(id, state, orderIds.size(), completed, failed.get(), bytes.get(),
+                    startedAt, TimeUnit.NANOSECONDS.toMillis(nanos), seconds > 0 ? completed / seconds : 0);
+        }
+    }
+
+    // Resultado de un render: pdf o error
+    private record Rendered(Long orderId, byte[] pdf, String error) {}
+
+    private final OrderRepository orderRepository;
+    private final PdfService pdfService;
+    private final ExecutorService renderExecutor;
+    private final int maxInFlight;
+    private final Map<String, Export> exports = new ConcurrentHashMap<>();
+    private final Counter renderedReceipts;
+    private final Counter failedReceipts;
+    private final MeterRegistry registry;
+
+    public ReceiptExportService(OrderRepository orderRepository,
+                                PdfService pdfService,
+                                MeterRegistry registry,
+                                @Value("${app.receipts.export.threads:0}") int threads,
+                                @Value("${app.receipts.export.max-in-flight:0}") int maxInFlight) {
+        this.orderRepository = orderRepository;
+        this.pdfService = pdfService;
+        this.registry = registry;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Dos recibos por hilo: mientras se escribe uno en el ZIP el hilo ya renderiza el siguiente
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : poolSize * 2;
+        AtomicInteger counter = new AtomicInteger();
+        this.renderExecutor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "receipt-export-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.renderedReceipts = Counter.builder("receipts.export.receipts").tag("outcome", "ok")
+                .description("Recibos escritos en exportaciones ZIP").register(registry);
+        this.failedReceipts = Counter.builder("receipts.export.receipts").tag("outcome", "failed")
+                .description("Recibos escritos en exportaciones ZIP").register(registry);
+        registry.gauge("receipts.export.active", exports,
+                m -> m.values().stream().filter(e -> RUNNING.equals(e.state)).count());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
+    /**
+     * Registra una exportacion. Los ids repetidos se exportan una sola vez: el ZIP
+     * no admite dos entradas con el mismo nombre y el total contaria de mas.
+     */
+    public Export start(List<Long> orderIds) {
+        Instant cutoff = Instant.now().minus(KEEP_FINISHED);
+        exports.values().removeIf(e -> !RUNNING.equals(e.state) && e.startedAt.isBefore(cutoff));
+        Export export = new Export(List.copyOf(new LinkedHashSet<>(orderIds)));
+        exports.put(export.id, export);
+        return export;
+    }
+
+    public Optional<ReceiptExportProgress> progress(String id) {
+        return Optional.ofNullable(exports.get(id)).map(Export::progress);
+    }
+
+    public List<ReceiptExportProgress> progress() {
+        return exports.values().stream()
+                .sorted(Comparator.comparing((Export e) -> e.startedAt).reversed())
+                .map(Export::progress)
+                .toList();
+    }
+
+    /**
+     * Escribe el ZIP en out. Las entradas salen en el orden en que terminan los
+     * renders; las ordenes que fallan o ya no existen se listan en errores.txt.
+     *
+     * @throws IOException si el cliente se desconecta (la exportacion queda CANCELLED)
+     */
+    public void write(Export export, OutputStream out) throws IOException {
+        BlockingQueue<Rendered> completed = new LinkedBlockingQueue<>();
+        Map<Long, Future<?>> inFlight = new HashMap<>();
+        Deque<Order> loaded = new ArrayDeque<>();
+        List<String> errors = new ArrayList<>();
+        int nextId = 0;
+        String finalState = FAILED;
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try {
+            while (nextId < export.orderIds.size() || !loaded.isEmpty() || !inFlight.isEmpty()) {
+                // Se llena la ventana de renders; no se carga ni renderiza mas de lo que el cliente consume
+                while (inFlight.size() < maxInFlight && (nextId < export.orderIds.size() || !loaded.isEmpty())) {
+                    if (loaded.isEmpty()) {
+                        List<Long> batch = export.orderIds.subList(nextId, Math.min(nextId + LOAD_BATCH, export.orderIds.size()));
+                        nextId += batch.size();
+                        List<Order> orders = orderRepository.findAllWithItemsByIdIn(batch);
+                        loaded.addAll(orders);
+                        if (orders.size() < batch.size()) {
+                            Set<Long> missing = new LinkedHashSet<>(batch);
+                            orders.forEach(o -> missing.remove(o.getId()));
+                            for (Long id : missing) {
+                                errors.add(id + ": la orden no existe");
+                                export.failed.incrementAndGet();
+                                failedReceipts.increment();
+                            }
+                        }
+                        continue;
+                    }
+                    Order order = loaded.poll();
+                    inFlight.put(order.getId(), renderExecutor.submit(() -> completed.add(render(order))));
+                }
+                if (inFlight.isEmpty()) {
+                    continue;
+                }
+
+                Rendered rendered = completed.take();
+                inFlight.remove(rendered.orderId());
+                if (rendered.pdf() != null) {
+                    putStored(zip, "recibo_orden_" + rendered.orderId() + ".pdf", rendered.pdf());
+                    zip.flush();
+                    export.done.incrementAndGet();
+                    export.bytes.addAndGet(rendered.pdf().length);
+                    renderedReceipts.increment();
+                } else {
+                    errors.add(rendered.orderId() + ": " + rendered.error());
+                    export.failed.incrementAndGet();
+                    failedReceipts.increment();
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                putStored(zip, "errores.txt", String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+            }
+            zip.finish();
+            zip.flush();
+            finalState = DONE;
+        } catch (IOException e) {
+            // Cliente desconectado: lo que quedaba en la cola del pool no llega a renderizarse
+            finalState = CANCELLED;
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finalState = CANCELLED;
+            throw new InterruptedIOException("Exportacion interrumpida");
+        } finally {
+            inFlight.values().forEach(f -> f.cancel(true));
+            finish(export, finalState);
+        }
+    }
+
+    private Rendered render(Order order) {
+        try {
+            return new Rendered(order.getId(), pdfService.generateOrderReceipt(order), null);
+        } catch (RuntimeException e) {
+            return new Rendered(order.getId(), null, e.getMessage());
+        }
+    }
+
+    // Los PDF ya vienen comprimidos: se guardan sin deflate (STORED) y no se gasta CPU en recomprimir
+    private static void putStored(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private void finish(Export export, String state) {
+        export.elapsedNanos = System.nanoTime() - export.startNanos;
+        export.state = state;
+        Timer.builder("receipts.export")
+                .description("Duracion de las exportaciones de recibos")
+                .tag("state", state)
+                .register(registry)
+                .record(export.elapsedNanos, TimeUnit.NANOSECONDS);
+        ReceiptExportProgress p = export.progress();
+        log.info("Exportacion de recibos {} {}: {}/{} recibos ({} con error), {} KB en {} ms, {} recibos/s",
+                p.id(), state, p.done(), p.total(), p.failed(), p.bytes() / 1024, p.elapsedMs(),
+                String.format(Locale.ROOT, "%.1f", p.receiptsPerSecond()));
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.SalesRebuildResult;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Acumulados de ventas por dia/estado (sales_daily) y por dia/estado/variante
+ * (sales_daily_variant). Cada escritura de ordenes aplica la diferencia entre
+ * el aporte anterior y el nuevo en su misma transaccion, con un upsert por fila
+ * afectada. rebuild() los recalcula desde orders (y orders_archive) para backfills.
+ */
+@Service
+public class SalesRollupService {
+
+    // Estado de las ordenes sin status (la clave del acumulado no admite NULL)
+    static final String UNKNOWN_STATUS = "unknown";
+
+    // Las ordenes archivadas siguen contando como ventas
+    private static final String ORDERS_WITH_ARCHIVE = """
+            (SELECT id, status, grand_total, created_at FROM orders
+             UNION ALL
+             SELECT id, status, grand_total, created_at FROM orders_archive)""";
+    private static final String ITEMS_WITH_ARCHIVE = """
+            (SELECT order_id, product_variant_id, quantity, line_total FROM order_items
+             UNION ALL
+             SELECT order_id, product_variant_id, quantity, line_total FROM order_items_archive)""";
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final Comparator<DayStatus> DAY_STATUS_ORDER =
+            Comparator.comparing(DayStatus::day).thenComparing(DayStatus::status);
+    private static final Comparator<DayStatusVariant> DAY_STATUS_VARIANT_ORDER =
+            Comparator.comparing(DayStatusVariant::day).thenComparing(DayStatusVariant::status)
+                    .thenComparing(DayStatusVariant::variantId);
+
+    private record DayStatus(LocalDate day, String status) {}
+
+    private record DayStatusVariant(LocalDate day, String status, Long variantId) {}
+
+    private static final class Totals {
+        long orders;
+        long units;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        boolean isZero() {
+            return orders == 0 && units == 0 && revenue.signum() == 0;
+        }
+    }
+
+    /**
+     * Cambio pendiente sobre los acumulados. Se suma el aporte nuevo de cada orden
+     * y se resta el anterior; lo que se cancela no genera sentencias.
+     * Las claves quedan ordenadas para que dos transacciones bloqueen filas en
+     * el mismo orden (sin deadlocks).
+     */
+    public static final class Delta {
+        private final Map<DayStatus, Totals> daily = new TreeMap<>(DAY_STATUS_ORDER);
+        private final Map<DayStatusVariant, Totals> variants = new TreeMap<>(DAY_STATUS_VARIANT_ORDER);
+
+        public Delta add(Order order) {
+            return apply(order, 1);
+        }
+
+        public Delta subtract(Order order) {
+            return apply(order, -1);
+        }
+
+        private Delta apply(Order order, int sign) {
+            if (order.getCreatedAt() == null) {
+                return this;
+            }
+            LocalDate day = order.getCreatedAt().toLocalDate();
+            String status = order.getStatus() != null ? order.getStatus() : UNKNOWN_STATUS;
+
+            // Por variante se agrupan primero los items de la orden: cuenta una vez por orden
+            Map<Long, Totals> byVariant = new TreeMap<>();
+            long units = 0;
+            if (order.getItems() != null) {
+                for (OrderItem item : order.getItems()) {
+                    long quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+                    units += quantity;
+                    if (item.getProductVariantId() == null) {
+                        continue;
+                    }
+                    Totals t = byVariant.computeIfAbsent(item.getProductVariantId(), id -> new Totals());
+                    t.orders = 1;
+                    t.units += quantity;
+                    if (item.getLineTotal() != null) {
+                        t.revenue = t.revenue.add(item.getLineTotal());
+                    }
+                }
+            }
+
+            Totals d = daily.computeIfAbsent(new DayStatus(day, status), k -> new Totals());
+            d.orders += sign;
+            d.units += sign * units;
+            if (order.getGrandTotal() != null) {
+                d.revenue = sign > 0 ? d.revenue.add(order.getGrandTotal()) : d.revenue.subtract(order.getGrandTotal());
+            }
+            byVariant.forEach((variantId, t) -> {
+                Totals v = variants.computeIfAbsent(new DayStatusVariant(day, status, variantId), k -> new Totals());
+                v.orders += sign * t.orders;
+                v.units += sign * t.units;
+                v.revenue = sign > 0 ? v.revenue.add(t.revenue) : v.revenue.subtract(t.revenue);
+            });
+            return this;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.analytics.rebuild-chunk-days:31}")
+    private int rebuildChunkDays;
+
+    // En PostgreSQL el upsert es una sola sentencia atomica (ON CONFLICT)
+    private boolean onConflictUpsert;
+
+    @PostConstruct
+    void detectDialect() {
+        onConflictUpsert = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Aplica el cambio a los acumulados. Debe llamarse dentro de la transaccion
+     * que escribe las ordenes para que ambos se confirmen juntos.
+     */
+    @Transactional
+    public void apply(Delta delta) {
+        delta.daily.forEach((key, t) -> {
+            if (!t.isZero()) {
+                upsertDaily(key, t);
+            }
+        });
+        delta.variants.forEach((key, t) -> {
+            if (!t.isZero()) {
+                upsertVariant(key, t);
+            }
+        });
+    }
+
+    /**
+     * Resta de los acumulados el aporte de las ordenes, calculado en la base con
+     * dos agregaciones (sin cargar las ordenes). Debe llamarse antes de borrarlas
+     * y en la misma transaccion.
+     */
+    @Transactional
+    public void subtractOrders(Collection<Long> orderIds) {
+        Delta delta = new Delta();
+        List<?> daily = entityManager.createNativeQuery("""
+                        SELECT CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), COUNT(*),
+                               COALESCE(SUM(i.units), 0), COALESCE(SUM(o.grand_total), 0)
+                        FROM orders o
+                        LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items
+                                   WHERE order_id IN (:ids) GROUP BY order_id) i
+                               ON i.order_id = o.id
+                        WHERE o.id IN (:ids) AND o.created_at IS NOT NULL
+                        GROUP BY CAST(o.created_at AS DATE), COALESCE(o.status, :unknown)
+                        """)
+                .setParameter("unknown", UNKNOWN_STATUS)
+                .setParameter("ids", orderIds)
+                .getResultList();
+        for (Object row : daily) {
+            Object[] r = (Object[]) row;
+            subtract(delta.daily.computeIfAbsent(new DayStatus(toDate(r[0]), (String) r[1]), k -> new Totals()), r, 2);
+        }
+        List<?> variants = entityManager.createNativeQuery("""
+                        SELECT CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), i.product_variant_id,
+                               COUNT(DISTINCT o.id), COALESCE(SUM(i.quantity), 0), COALESCE(SUM(i.line_total), 0)
+                        FROM orders o
+                        JOIN order_items i ON i.order_id = o.id
+                        WHERE o.id IN (:ids) AND o.created_at IS NOT NULL
+                          AND i.product_variant_id IS NOT NULL
+                        GROUP BY CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), i.product_variant_id
+                        """)
+                .setParameter("unknown", UNKNOWN_STATUS)
+                .setParameter("ids", orderIds)
+                .getResultList();
+        for (Object row : variants) {
+            Object[] r = (Object[]) row;
+            DayStatusVariant key = new DayStatusVariant(toDate(r[0]), (String) r[1], ((Number) r[2]).longValue());
+            subtract(delta.variants.computeIfAbsent(key, k -> new Totals()), r, 3);
+        }
+        apply(delta);
+    }
+
+    // Columnas order_count, units, revenue a partir de la posicion first
+    private static void subtract(Totals t, Object[] row, int first) {
+        t.orders -= ((Number) row[first]).longValue();
+        t.units -= ((Number) row[first + 1]).longValue();
+        t.revenue = t.revenue.subtract(new BigDecimal(row[first + 2].toString()));
+    }
+
+    private static LocalDate toDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    /**
+     * Recalcula los acumulados de [from, to) desde orders y order_items (y sus
+     * tablas de archivo: archivar no es anular una venta), en una
+     * transaccion por bloque de dias. Sin rango se toma desde la primera orden
+     * hasta hoy inclusive.
+     */
+    public SalesRebuildResult rebuild(LocalDate from, LocalDate to) {
+        long start = System.currentTimeMillis();
+        if (from == null) {
+            LocalDateTime first = entityManager.createQuery("SELECT MIN(o.createdAt) FROM Order o", LocalDateTime.class)
+                    .getSingleResult();
+            LocalDateTime firstArchived = entityManager.createQuery(
+                            "SELECT MIN(o.createdAt) FROM ArchivedOrder o", LocalDateTime.class)
+                    .getSingleResult();
+            if (first == null || firstArchived != null && firstArchived.isBefore(first)) {
+                first = firstArchived;
+            }
+            from = first != null ? first.toLocalDate() : LocalDate.now();
+        }
+        if (to == null) {
+            to = LocalDate.now().plusDays(1);
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int dailyRows = 0;
+        int variantRows = 0;
+        for (LocalDate chunkFrom = from; chunkFrom.isBefore(to); chunkFrom = chunkFrom.plusDays(rebuildChunkDays)) {
+            LocalDate chunkTo = chunkFrom.plusDays(rebuildChunkDays).isBefore(to) ? chunkFrom.plusDays(rebuildChunkDays) : to;
+            LocalDate f = chunkFrom;
+            int[] rows = tx.execute(status -> rebuildChunk(f, chunkTo));
+            dailyRows += rows[0];
+            variantRows += rows[1];
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("Acumulados de ventas reconstruidos para [{}, {}): {} filas por dia, {} por variante en {} ms",
+                from, to, dailyRows, variantRows, millis);
+        return new SalesRebuildResult(from, to, dailyRows, variantRows, millis);
+    }
+
+    private int[] rebuildChunk(LocalDate from, LocalDate to) {
+        entityManager.createNativeQuery("DELETE FROM sales_daily WHERE sales_date >= :from AND sales_date < :to")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM sales_daily_variant WHERE sales_date >= :from AND sales_date < :to")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .executeUpdate();
+
+        int daily = entityManager.createNativeQuery("""
+                        INSERT INTO sales_daily (sales_date, status, order_count, units, revenue)
+                        SELECT CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), COUNT(*),
+                               COALESCE(SUM(i.units), 0), COALESCE(SUM(o.grand_total), 0)
+                        FROM %s o
+                        LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM %s a GROUP BY order_id) i
+                               ON i.order_id = o.id
+                        WHERE o.created_at >= :from AND o.created_at < :to
+                        GROUP BY CAST(o.created_at AS DATE), COALESCE(o.status, :unknown)
+                        """.formatted(ORDERS_WITH_ARCHIVE, ITEMS_WITH_ARCHIVE))
+                .setParameter("unknown", UNKNOWN_STATUS)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .executeUpdate();
+        int variants = entityManager.createNativeQuery("""
+                        INSERT INTO sales_daily_variant (sales_date, status, product_variant_id, order_count, units, revenue)
+                        SELECT CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), i.product_variant_id,
+                               COUNT(DISTINCT o.id), COALESCE(SUM(i.quantity), 0), COALESCE(SUM(i.line_total), 0)
+                        FROM %s o
+                        JOIN %s i ON i.order_id = o.id
+                        WHERE o.created_at >= :from AND o.created_at < :to
+                          AND i.product_variant_id IS NOT NULL
+                        GROUP BY CAST(o.created_at AS DATE), COALESCE(o.status, :unknown), i.product_variant_id
+                        """.formatted(ORDERS_WITH_ARCHIVE, ITEMS_WITH_ARCHIVE))
+                .setParameter("unknown", UNKNOWN_STATUS)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .executeUpdate();
+        return new int[]{daily, variants};
+    }
+
+    private void upsertDaily(DayStatus key, Totals t) {
+        if (onConflictUpsert) {
+            entityManager.createNativeQuery("""
+                            INSERT INTO sales_daily (sales_date, status, order_count, units, revenue)
+                            VALUES (:day, :status, :orders, :units, :revenue)
+                            ON CONFLICT (sales_date, status) DO UPDATE SET
+                                order_count = sales_daily.order_count + EXCLUDED.order_count,
+                                units = sales_daily.units + EXCLUDED.units,
+                                revenue = sales_daily.revenue + EXCLUDED.revenue
+                            """)
+                    .setParameter("day", key.day())
+                    .setParameter("status", key.status())
+                    .setParameter("orders", t.orders)
+                    .setParameter("units", t.units)
+                    .setParameter("revenue", t.revenue)
+                    .executeUpdate();
+            return;
+        }
+        // Otras bases (H2 en los tests): UPDATE y, si no habia fila, INSERT
+        int updated = entityManager.createNativeQuery("""
+                        UPDATE sales_daily
+                        SET order_count = order_count + :orders, units = units + :units, revenue = revenue + :revenue
+                        WHERE sales_date = :day AND status = :status
+                        """)
+                .setParameter("day", key.day())
+                .setParameter("status", key.status())
+                .setParameter("orders", t.orders)
+                .setParameter("units", t.units)
+                .setParameter("revenue", t.revenue)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.createNativeQuery("""
+                            INSERT INTO sales_daily (sales_date, status, order_count, units, revenue)
+                            VALUES (:day, :status, :orders, :units, :revenue)
+                            """)
+                    .setParameter("day", key.day())
+                    .setParameter("status", key.status())
+                    .setParameter("orders", t.orders)
+                    .setParameter("units", t.units)
+                    .setParameter("revenue", t.revenue)
+                    .executeUpdate();
+        }
+    }
+
+    private void upsertVariant(DayStatusVariant key, Totals t) {
+        if (onConflictUpsert) {
+            entityManager.createNativeQuery("""
+                            INSERT INTO sales_daily_variant (sales_date, status, product_variant_id, order_count, units, revenue)
+                            VALUES (:day, :status, :variant, :orders, :units, :revenue)
+                            ON CONFLICT (sales_date, status, product_variant_id) DO UPDATE SET
+                                order_count = sales_daily_variant.order_count + EXCLUDED.order_count,
+                                units = sales_daily_variant.units + EXCLUDED.units,
+                                revenue = sales_daily_variant.revenue + EXCLUDED.revenue
+                            """)
+                    .setParameter("day", key.day())
+                    .setParameter("status", key.status())
+                    .setParameter("variant", key.variantId())
+                    .setParameter("orders", t.orders)
+                    .setParameter("units", t.units)
+                    .setParameter("revenue", t.revenue)
+                    .executeUpdate();
+            return;
+        }
+        // Otras bases (H2 en los tests): UPDATE y, si no habia fila, INSERT
+        int updated = entityManager.createNativeQuery("""
+                        UPDATE sales_daily_variant
+                        SET order_count = order_count + :orders, units = units + :units, revenue = revenue + :revenue
+                        WHERE sales_date = :day AND status = :status AND product_variant_id = :variant
+                        """)
+                .setParameter("day", key.day())
+                .setParameter("status", key.status())
+                .setParameter("variant", key.variantId())
+                .setParameter("orders", t.orders)
+                .setParameter("units", t.units)
+                .setParameter("revenue", t.revenue)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.createNativeQuery("""
+                            INSERT INTO sales_daily_variant (sales_date, status, product_variant_id, order_count, units, revenue)
+                            VALUES (:day, :status, :variant, :orders, :units, :revenue)
+                            """)
+                    .setParameter("day", key.day())
+                    .setParameter("status", key.status())
+                    .setParameter("variant", key.variantId())
+                    .setParameter("orders", t.orders)
+                    .setParameter("units", t.units)
+                    .setParameter("revenue", t.revenue)
+                    .executeUpdate();
+        }
+    }
+}
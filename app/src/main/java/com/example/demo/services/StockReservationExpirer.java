@@ -0,0 +1,32 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Devuelve al stock las reservas vencidas, un lote por transaccion. Con varias
+ * instancias cada una toma filas distintas (SKIP LOCKED).
+ */
+@Component
+@ConditionalOnProperty(name = "app.inventory.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class StockReservationExpirer {
+
+    @Autowired
+    private InventoryService inventory;
+
+    @Value("${app.inventory.expiry.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.inventory.expiry.interval-ms:15000}",
+            fixedDelayString = "${app.inventory.expiry.interval-ms:15000}")
+    public void releaseExpired() {
+        // Sigue mientras haya lotes completos
+        int released;
+        do {
+            released = inventory.releaseExpired(batchSize);
+        } while (released == batchSize);
+    }
+}
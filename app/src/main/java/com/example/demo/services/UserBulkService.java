@@ -0,0 +1,92 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.BulkDeleteResult;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Borrado masivo de usuarios: un DELETE ... WHERE id IN por bloque de
+ * app.bulk.chunk-size, sin cargar los usuarios. Cada bloque es una
+ * transaccion y un error solo deshace el bloque en curso; los usuarios con
+ * ordenes se rechazan antes de borrar nada.
+ */
+@Service
+public class UserBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserBulkService.class);
+
+    /**
+     * Hay usuarios con ordenes (orders.user_id los referencia).
+     */
+    public static class UsersInUseException extends RuntimeException {
+        private final List<Long> userIds;
+
+        public UsersInUseException(List<Long> userIds) {
+            super("Usuarios con ordenes: " + userIds);
+            this.userIds = userIds;
+        }
+
+        public List<Long> getUserIds() { return userIds; }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bulk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * @throws UsersInUseException si alguno tiene ordenes; no se borra ninguno
+     */
+    public BulkDeleteResult delete(List<Long> ids) {
+        long start = System.currentTimeMillis();
+        List<Long> unique = ids.stream().distinct().toList();
+        List<Long> inUse = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            inUse.addAll(orderRepository.findUserIdsWithOrders(
+                    unique.subList(from, Math.min(from + chunkSize, unique.size()))));
+        }
+        if (!inUse.isEmpty()) {
+            throw new UsersInUseException(inUse);
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        int chunks = 0;
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            List<Long> chunk = unique.subList(from, Math.min(from + chunkSize, unique.size()));
+            try {
+                deleted += tx.execute(status -> userRepository.bulkDelete(chunk));
+            } catch (DataIntegrityViolationException e) {
+                // Se le creo una orden a alguno despues de la comprobacion; los bloques anteriores quedan borrados
+                List<Long> withOrders = orderRepository.findUserIdsWithOrders(chunk);
+                if (withOrders.isEmpty()) {
+                    throw e;
+                }
+                throw new UsersInUseException(withOrders);
+            }
+            chunks++;
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("Borrado masivo de usuarios: {} usuarios en {} bloques, {} ms", deleted, chunks, millis);
+        return new BulkDeleteResult(deleted, 0, 0, chunks, millis);
+    }
+}
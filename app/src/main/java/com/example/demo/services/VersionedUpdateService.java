@@ -0,0 +1,62 @@
+package com.example.demo.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Actualizaciones parciales sin leer la entidad antes: un solo
+ * UPDATE ... SET (solo los campos que cambian), version = version + 1
+ * WHERE id = ? AND version = ?. La entidad tiene que tener id y @Version.
+ */
+@Service
+public class VersionedUpdateService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param expectedVersion version que el cliente leyo, o null para actualizar sin condicion
+     * @return false si no hay fila con ese id; si hubo condicion la version nueva es expectedVersion + 1
+     * @throws ObjectOptimisticLockingFailureException si la fila existe con otra version
+     */
+    @Transactional
+    public boolean update(Class<?> type, Long id, Long expectedVersion, Map<String, Object> changes) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Object> update = cb.createCriteriaUpdate(rawType(type));
+        Root<Object> root = update.from(rawType(type));
+        Path<Long> version = root.get("version");
+        changes.forEach(update::set);
+        update.set(version, cb.sum(version, 1L));
+        update.where(expectedVersion == null
+                ? cb.equal(root.get("id"), id)
+                : cb.and(cb.equal(root.get("id"), id), cb.equal(version, expectedVersion)));
+
+        if (entityManager.createQuery(update).executeUpdate() == 1) {
+            return true;
+        }
+        // Solo cuando no se actualizo nada: se distingue "no existe" de "version vieja"
+        boolean exists = !entityManager.createQuery(
+                        "SELECT e.id FROM " + entityManager.getMetamodel().entity(type).getName() + " e WHERE e.id = :id")
+                .setParameter("id", id)
+                .getResultList()
+                .isEmpty();
+        if (exists) {
+            throw new ObjectOptimisticLockingFailureException(type, id);
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Object> rawType(Class<?> type) {
+        return (Class<Object>) type;
+    }
+}
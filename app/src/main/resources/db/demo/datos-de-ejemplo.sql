@@ -0,0 +1,35 @@
+-- ============================================
+-- Datos de ejemplo (solo con el perfil demo)
+-- ============================================
+-- Lo ejecuta DemoDataConfig en cada arranque despues de las migraciones,
+-- asi que cada INSERT se saltea si el dato ya esta.
+
+-- Categorias de ejemplo
+INSERT INTO categories (name, slug, description)
+SELECT v.name, v.slug, v.description
+FROM (VALUES
+    ('Camisetas', 'camisetas', 'Camisetas deportivas'),
+    ('Pantalones', 'pantalones', 'Pantalones y shorts deportivos'),
+    ('Calzado', 'calzado', 'Zapatillas deportivas'),
+    ('Accesorios', 'accesorios', 'Accesorios de gimnasio')
+) AS v(name, slug, description)
+WHERE NOT EXISTS (SELECT 1 FROM categories c WHERE c.slug = v.slug);
+
+-- Usuario admin de ejemplo
+INSERT INTO users (name, email, password_hash, role)
+SELECT 'Admin', 'admin@gymwear.com', 'admin123', 'admin'
+WHERE NOT EXISTS (SELECT 1 FROM users WHERE email = 'admin@gymwear.com');
+
+-- Productos de ejemplo (la categoria se busca por slug, no por id)
+INSERT INTO products (category_id, name, slug, description, base_price, active)
+SELECT c.id, v.name, v.slug, v.description, v.base_price, true
+FROM (VALUES
+    ('camisetas', 'Camiseta Dry-Fit Pro', 'camiseta-dry-fit-pro', 'Camiseta deportiva con tecnología Dry-Fit', 29.99),
+    ('camisetas', 'Tank Top Training', 'tank-top-training', 'Tank top para entrenamiento intenso', 24.99),
+    ('pantalones', 'Short Flex', 'short-flex', 'Short elástico para máxima movilidad', 34.99),
+    ('pantalones', 'Jogger Sport', 'jogger-sport', 'Jogger cómodo para gimnasio', 44.99),
+    ('calzado', 'Zapatillas Cross-Training', 'zapatillas-cross-training', 'Zapatillas versátiles para todo tipo de ejercicio', 89.99),
+    ('accesorios', 'Guantes Gym Pro', 'guantes-gym-pro', 'Guantes con soporte de muñeca', 19.99)
+) AS v(category_slug, name, slug, description, base_price)
+JOIN categories c ON c.slug = v.category_slug
+WHERE NOT EXISTS (SELECT 1 FROM products p WHERE p.slug = v.slug);
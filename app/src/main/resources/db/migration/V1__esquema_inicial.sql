@@ -0,0 +1,59 @@
+-- ============================================
+-- GymWear Shop - Esquema inicial
+-- ============================================
+-- El esquema original (el schema.sql previo a las migraciones), sin cambios.
+-- Las bases que ya existian no ejecutan este script: Flyway las marca como
+-- version 1 (baseline-on-migrate) y sigue desde V2, que agrega todo lo posterior.
+
+-- Tabla de usuarios
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password_hash VARCHAR(255) NOT NULL,
+    role VARCHAR(50) NOT NULL DEFAULT 'customer',
+    phone VARCHAR(50),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Tabla de categorias
+CREATE TABLE IF NOT EXISTS categories (
+    id BIGSERIAL PRIMARY KEY,
+    parent_id BIGINT REFERENCES categories(id),
+    name VARCHAR(255) NOT NULL,
+    slug VARCHAR(255),
+    description TEXT
+);
+
+-- Tabla de productos
+CREATE TABLE IF NOT EXISTS products (
+    id BIGSERIAL PRIMARY KEY,
+    category_id BIGINT NOT NULL REFERENCES categories(id),
+    name VARCHAR(255) NOT NULL,
+    slug VARCHAR(255),
+    description TEXT,
+    base_price DECIMAL(10, 2),
+    active BOOLEAN DEFAULT true,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Tabla de ordenes
+CREATE TABLE IF NOT EXISTS orders (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES users(id),
+    status VARCHAR(50) NOT NULL DEFAULT 'pending',
+    grand_total DECIMAL(10, 2),
+    shipping_address_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Tabla de items de orden
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders(id),
+    product_variant_id BIGINT,
+    quantity INTEGER NOT NULL DEFAULT 1,
+    unit_price DECIMAL(10, 2),
+    line_total DECIMAL(10, 2)
+);
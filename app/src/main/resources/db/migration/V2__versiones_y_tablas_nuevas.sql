@@ -0,0 +1,102 @@
+-- ============================================
+-- Columnas y tablas agregadas sobre el esquema inicial
+-- ============================================
+-- Corre tanto sobre una base nueva como sobre una que ya existia y quedo
+-- marcada como version 1: las del schema.sql original y las que creo
+-- ddl-auto=update, que pueden diferir en defaults y restricciones. Por eso
+-- todo es idempotente.
+
+-- Version para PATCH con If-Match (bloqueo optimista); las filas existentes quedan en 0
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Las bases creadas por Hibernate no tenian default en created_at (la columna no se insertaba)
+ALTER TABLE users ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE products ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+
+-- El schema.sql original exigia status; las bases de Hibernate no. La API admite ordenes
+-- sin estado (los acumulados las cuentan como "unknown")
+ALTER TABLE orders ALTER COLUMN status DROP NOT NULL;
+
+-- Ordenes e items: Hibernate reserva ids de a 50 (allocationSize). En PostgreSQL las secuencias
+-- ya existen (BIGSERIAL o identity) y siguen desde el ultimo id; solo cambia el incremento
+CREATE SEQUENCE IF NOT EXISTS orders_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_id_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+
+-- Ordenes archivadas (POST /api/orders/archive): mismas columnas y la fecha de archivado
+CREATE TABLE IF NOT EXISTS orders_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT,
+    status VARCHAR(50),
+    grand_total DECIMAL(10, 2),
+    shipping_address_id BIGINT,
+    created_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_orders_archive_created_at ON orders_archive (created_at);
+
+CREATE TABLE IF NOT EXISTS order_items_archive (
+    id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_variant_id BIGINT,
+    quantity INTEGER,
+    unit_price DECIMAL(10, 2),
+    line_total DECIMAL(10, 2)
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_items_archive_order_id ON order_items_archive (order_id);
+
+-- Acumulados de ventas por dia y estado, y por dia, variante y estado
+CREATE TABLE IF NOT EXISTS sales_daily (
+    sales_date DATE NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    order_count BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (sales_date, status)
+);
+
+CREATE TABLE IF NOT EXISTS sales_daily_variant (
+    sales_date DATE NOT NULL,
+    product_variant_id BIGINT NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    order_count BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (sales_date, product_variant_id, status)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sales_daily_variant_variant ON sales_daily_variant (product_variant_id, sales_date);
+
+-- Bandeja de salida de correos
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    order_status VARCHAR(255),
+    state VARCHAR(255) NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox (state, next_attempt_at);
+
+-- Respuestas guardadas por Idempotency-Key
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id VARCHAR(400) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    response_status INTEGER,
+    content_type VARCHAR(100),
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
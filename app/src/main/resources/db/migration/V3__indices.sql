@@ -0,0 +1,21 @@
+-- ============================================
+-- Indices de las consultas frecuentes
+-- ============================================
+-- Tambien corre sobre las bases creadas antes de las migraciones, por eso
+-- todo es idempotente.
+
+-- Productos por categoria (keyset por id). PostgreSQL no indexa solo las claves foraneas
+CREATE INDEX IF NOT EXISTS idx_products_category_id ON products (category_id, id);
+
+-- Items de una orden: carga de items, borrado/archivado masivo, exportacion y acumulados
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+
+-- Listado de ordenes (keyset por id) filtrado por usuario o por estado
+CREATE INDEX IF NOT EXISTS idx_orders_user_id ON orders (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_orders_status ON orders (status, id);
+
+-- Rangos de fechas: filtros from/to y recalculo de acumulados por bloques de dias
+CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders (created_at);
+
+-- Arbol de categorias
+CREATE INDEX IF NOT EXISTS idx_categories_parent_id ON categories (parent_id);
@@ -0,0 +1,41 @@
+-- ============================================
+-- Variantes, stock y reservas
+-- ============================================
+-- order_items.product_variant_id queda sin clave foranea: hay lineas viejas
+-- con variantes que nunca existieron en la tabla.
+
+CREATE TABLE IF NOT EXISTS product_variants (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL REFERENCES products(id),
+    sku VARCHAR(100) NOT NULL UNIQUE,
+    size VARCHAR(50),
+    color VARCHAR(50),
+    price DECIMAL(10, 2),
+    active BOOLEAN DEFAULT true,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_product_variants_product_id ON product_variants (product_id);
+
+-- Stock de cada variante repartido en buckets: una venta bloquea un bucket, no toda la variante.
+-- Una variante sin filas aca no lleva control de stock
+CREATE TABLE IF NOT EXISTS variant_stock (
+    variant_id BIGINT NOT NULL REFERENCES product_variants(id),
+    bucket INTEGER NOT NULL,
+    available INTEGER NOT NULL CHECK (available >= 0),
+    PRIMARY KEY (variant_id, bucket)
+);
+
+-- Unidades apartadas con vencimiento; las vencidas vuelven a su bucket
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    token VARCHAR(36) NOT NULL,
+    variant_id BIGINT NOT NULL,
+    bucket INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_token ON stock_reservations (token);
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_expires_at ON stock_reservations (expires_at);
@@ -0,0 +1,192 @@
+package com.example.demo.config;
+
+import com.example.demo.config.AdmissionControlFilter.EndpointClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Con la clase llena se responde 503 rapido; los cupos compartidos van
+ * primero al checkout y la reserva solo la usa el checkout.
+ */
+class AdmissionControlFilterTest {
+
+    @Test
+    void endpointsAreClassified() {
+        assertThat(AdmissionControlFilter.classify("POST", "/api/orders")).isEqualTo(EndpointClass.CHECKOUT);
+        assertThat(AdmissionControlFilter.classify("PATCH", "/api/orders/7")).isEqualTo(EndpointClass.CHECKOUT);
+        assertThat(AdmissionControlFilter.classify("POST", "/api/inventory/reservations")).isEqualTo(EndpointClass.CHECKOUT);
+        assertThat(AdmissionControlFilter.classify("PUT", "/api/inventory/variants/3/stock")).isEqualTo(EndpointClass.ADMIN);
+        assertThat(AdmissionControlFilter.classify("GET", "/api/products/search")).isEqualTo(EndpointClass.CATALOG);
+        assertThat(AdmissionControlFilter.classify("GET", "/api/orders/7")).isEqualTo(EndpointClass.CATALOG);
+        assertThat(AdmissionControlFilter.classify("GET", "/api/orders/7/pdf")).isEqualTo(EndpointClass.DOCUMENTS);
+        assertThat(AdmissionControlFilter.classify("POST", "/api/orders/7/email")).isEqualTo(EndpointClass.DOCUMENTS);
+        assertThat(AdmissionControlFilter.classify("GET", "/api/orders/export")).isEqualTo(EndpointClass.DOCUMENTS);
+        assertThat(AdmissionControlFilter.classify("POST", "/api/orders/bulk-delete")).isEqualTo(EndpointClass.ADMIN);
+        assertThat(AdmissionControlFilter.classify("PUT", "/api/products/3")).isEqualTo(EndpointClass.ADMIN);
+    }
+
+    @Test
+    void fullClassIsRejectedWithRetryAfter() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.admission.documents.max-concurrent", "1")
+                .withProperty("app.admission.documents.max-wait-ms", "50")
+                .withProperty("app.admission.documents.retry-after-seconds", "7");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(environment, registry);
+
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            try {
+                filter.doFilter(request("GET", "/api/orders/1/pdf"), response, (req, res) -> {
+                    inside.countDown();
+                    try {
+                        finish.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return response;
+        });
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        long start = System.nanoTime();
+        filter.doFilter(request("GET", "/api/orders/2/pdf"), rejected, (req, res) -> {});
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+        assertThat(registry.get("http.admission.rejected").tag("class", "documents").counter().count()).isEqualTo(1);
+
+        // Otra clase no se ve afectada
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/products"), read, (req, res) -> {});
+        assertThat(read.getStatus()).isEqualTo(200);
+
+        finish.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        MockHttpServletResponse again = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/orders/2/pdf"), again, (req, res) -> {});
+        assertThat(again.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void queuedGaugeCountsRequestsWaitingForTheirClass() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.admission.documents.max-concurrent", "1")
+                .withProperty("app.admission.documents.max-wait-ms", "5000");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(environment, registry);
+
+        // La primera ocupa el cupo de la clase; la segunda espera el de la clase, no el compartido
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(
+                () -> perform(filter, "/api/orders/1/pdf", inside, finish));
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(
+                () -> perform(filter, "/api/orders/2/pdf", new CountDownLatch(1), new CountDownLatch(0)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(registry, "documents") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(queued(registry, "documents")).isEqualTo(1);
+        assertThat(queued(registry, "catalog")).isZero();
+
+        finish.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(second.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(queued(registry, "documents")).isZero();
+    }
+
+    @Test
+    void checkoutGoesFirstAndKeepsTheReserve() throws Exception {
+        // 3 cupos, 1 reservado: las lecturas solo llegan a usar 2
+        AdmissionLimiter limiter = new AdmissionLimiter(3, 2, 1);
+        assertThat(limiter.tryAcquire(1, 0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.tryAcquire(1, 0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(limiter.tryAcquire(0, 0, TimeUnit.MILLISECONDS)).isTrue();
+
+        // Con todo ocupado, una lectura y un checkout esperan; el cupo que se libera es del checkout
+        List<String> order = new ArrayList<>();
+        CompletableFuture<Void> read = CompletableFuture.runAsync(() -> acquire(limiter, 1, "read", order));
+        awaitWaiting(limiter, 1);
+        CompletableFuture<Void> checkout = CompletableFuture.runAsync(() -> acquire(limiter, 0, "checkout", order));
+        awaitWaiting(limiter, 0);
+
+        limiter.release();
+        checkout.get(5, TimeUnit.SECONDS);
+        assertThat(order).containsExactly("checkout");
+        limiter.release();
+        limiter.release();
+        read.get(5, TimeUnit.SECONDS);
+        assertThat(order).containsExactly("checkout", "read");
+    }
+
+    private static void acquire(AdmissionLimiter limiter, int priority, String name, List<String> order) {
+        try {
+            if (limiter.tryAcquire(priority, 5, TimeUnit.SECONDS)) {
+                synchronized (order) {
+                    order.add(name);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitWaiting(AdmissionLimiter limiter, int priority) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.waiting(priority) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(limiter.waiting(priority)).isEqualTo(1);
+    }
+
+    // Pasa por el filtro y, ya dentro, avisa con inside y espera a finish
+    private static MockHttpServletResponse perform(AdmissionControlFilter filter, String uri,
+                                                   CountDownLatch inside, CountDownLatch finish) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request("GET", uri), response, (req, res) -> {
+                inside.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    private static double queued(SimpleMeterRegistry registry, String type) {
+        return registry.get("http.admission.queued").tag("class", type).gauge().value();
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+}
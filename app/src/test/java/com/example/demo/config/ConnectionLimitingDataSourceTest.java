@@ -0,0 +1,176 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El limitador entrega como maximo N conexiones: el permiso vuelve al cerrar la
+ * conexion (una sola vez) o si el pool falla, y sin permiso se espera como mucho
+ * el timeout.
+ */
+class ConnectionLimitingDataSourceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionLimitingDataSourceTest.class);
+
+    // Cuenta las conexiones abiertas a la vez y puede fallar a pedido
+    private static class CountingDataSource extends DelegatingDataSource {
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger maxOpen = new AtomicInteger();
+        final AtomicBoolean failing = new AtomicBoolean();
+
+        CountingDataSource() {
+            super(h2());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (failing.get()) {
+                throw new SQLException("Connection refused");
+            }
+            Connection connection = super.getConnection();
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            open.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+
+    @Test
+    void closingTheConnectionReleasesItsPermitOnce() throws SQLException {
+        ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(h2(), 1, 50);
+
+        Connection first = limited.getConnection();
+        assertThatThrownBy(limited::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        // Cerrar dos veces no devuelve un segundo permiso
+        first.close();
+        try (Connection second = limited.getConnection()) {
+            assertThat(second.isValid(1)).isTrue();
+            assertThatThrownBy(limited::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        }
+        limited.getConnection().close();
+    }
+
+    @Test
+    void failingPoolDoesNotLeakPermits() throws SQLException {
+        CountingDataSource pool = new CountingDataSource();
+        ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(pool, 1, 50);
+
+        pool.failing.set(true);
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(limited::getConnection)
+                    .isInstanceOf(SQLException.class)
+                    .isNotInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessage("Connection refused");
+        }
+
+        pool.failing.set(false);
+        try (Connection connection = limited.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+    }
+
+    @Test
+    void waitingForAPermitTimesOut() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(h2(), 1, 200);
+        limited.bindTo(registry);
+
+        try (Connection held = limited.getConnection()) {
+            long start = System.nanoTime();
+            assertThatThrownBy(limited::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessage("Sin conexion disponible tras 200 ms");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(190);
+        }
+
+        Timer wait = registry.get("jdbc.connections.limiter.wait").timer();
+        assertThat(wait.count()).isEqualTo(2);
+        assertThat(wait.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(190);
+        assertThat(registry.get("jdbc.connections.limiter.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheLimit() throws Exception {
+        int limit = 4;
+        int threads = 64;
+        int perThread = 20;
+        CountingDataSource pool = new CountingDataSource();
+        ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(pool, limit, 10_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limited.bindTo(registry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < perThread; j++) {
+                    try (Connection connection = limited.getConnection()) {
+                        connection.createStatement().execute("SELECT 1");
+                        Thread.sleep(1);
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        executor.shutdown();
+
+        assertThat(pool.maxOpen.get()).isEqualTo(limit);
+        assertThat(pool.open.get()).isZero();
+        Timer wait = registry.get("jdbc.connections.limiter.wait").timer();
+        assertThat(wait.count()).isEqualTo((long) threads * perThread);
+        log.info("{} hilos con {} permisos: {} conexiones en {} ms, espera media {} ms, maxima {} ms",
+                threads, limit, threads * perThread, millis,
+                String.format("%.2f", wait.mean(TimeUnit.MILLISECONDS)),
+                String.format("%.2f", wait.max(TimeUnit.MILLISECONDS)));
+    }
+
+    private static DataSource h2() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
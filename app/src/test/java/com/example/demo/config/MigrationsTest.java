@@ -0,0 +1,120 @@
+package com.example.demo.config;
+
+import jakarta.persistence.Entity;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las migraciones crean el esquema que esperan las entidades: el contexto
+ * arranca con ddl-auto=validate sobre una base creada solo por Flyway, y una
+ * base que ya existia antes de Flyway queda igual despues de migrar.
+ * H2 en modo PostgreSQL y Hibernate con el dialecto de PostgreSQL, para que
+ * la validacion espere los mismos tipos que en produccion.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.flyway.init-sqls=SET MODE PostgreSQL",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect"
+})
+@AutoConfigureTestDatabase
+@ActiveProfiles({"test", "demo"})
+class MigrationsTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void migrationsMatchEntitiesAndSeedIsIdempotent() {
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("4");
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class)).isEqualTo(6);
+
+        // Volver a correr el script de ejemplo no duplica nada
+        new ResourceDatabasePopulator(new ClassPathResource("db/demo/datos-de-ejemplo.sql")).execute(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM categories", Long.class)).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class)).isEqualTo(6);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(1);
+    }
+
+    // Una base de produccion previa a Flyway: el schema.sql original (el mismo V1) o lo que creaba
+    // ddl-auto=update. Se marca como version 1 y V2 en adelante la completan sin perder filas
+    @ParameterizedTest
+    @ValueSource(strings = {"db/migration/V1__esquema_inicial.sql", "db/baseline/esquema-ddl-auto.sql"})
+    void existingDatabaseIsBaselinedAndMigrated(String schema) throws Exception {
+        DriverManagerDataSource existing = new DriverManagerDataSource(
+                "jdbc:h2:mem:baseline-" + schema.hashCode() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource(schema), new ClassPathResource("db/baseline/datos.sql"))
+                .execute(existing);
+
+        // Misma configuracion que application.properties
+        Flyway migrations = Flyway.configure()
+                .dataSource(existing)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        migrations.migrate();
+
+        assertThat(migrations.info().current().getVersion().getVersion()).isEqualTo("4");
+        assertThat(migrations.info().applied()).extracting(m -> m.getVersion().getVersion())
+                .containsExactly("1", "2", "3", "4");
+        JdbcTemplate jdbc = new JdbcTemplate(existing);
+        assertThat(jdbc.queryForObject("SELECT version FROM orders WHERE id = 1", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT version FROM users WHERE id = 1", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM order_items", Long.class)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM email_outbox", Long.class)).isZero();
+
+        // Las entidades validan contra el esquema migrado (como ddl-auto=validate al arrancar)
+        DatasourceConnectionProviderImpl connections = new DatasourceConnectionProviderImpl();
+        connections.setDataSource(existing);
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER, connections)
+                .applySetting(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "validate")
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName())
+                .build();
+        MetadataSources sources = new MetadataSources(registry);
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (var candidate : scanner.findCandidateComponents("com.example.demo.models")) {
+            sources.addAnnotatedClass(Class.forName(candidate.getBeanClassName()));
+        }
+        try (SessionFactory sessionFactory = sources.buildMetadata().buildSessionFactory()) {
+            assertThat(sessionFactory.getMetamodel().getEntities()).hasSizeGreaterThan(10);
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.emptyOrNullString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ids de peticion y metricas expuestas en /actuator/prometheus.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class ObservabilityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void echoesOrGeneratesRequestId() throws Exception {
+        mockMvc.perform(get("/api/orders").header(RequestIdFilter.HEADER, "abc-123"))
+                .andExpect(header().string(RequestIdFilter.HEADER, "abc-123"));
+        mockMvc.perform(get("/api/orders"))
+                .andExpect(header().string(RequestIdFilter.HEADER, not(emptyOrNullString())));
+    }
+
+    @Test
+    void exposesLatencyHistogramsAndStatementsPerRequest() throws Exception {
+        mockMvc.perform(get("/api/users")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString(
+                        "http_server_requests_sql_statements_count{application=\"gymwear-shop\",method=\"GET\",uri=\"/api/users\"")))
+                .andExpect(content().string(containsString("pdf_render_seconds_count")));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las transacciones de solo lectura van a la replica; el resto, o una replica
+ * atrasada o sin conexion, va al primario.
+ */
+class ReadReplicaRoutingDataSourceTest {
+
+    // El chequeo real usa funciones de PostgreSQL; aqui el estado se fija a mano
+    private static class FixedMonitor extends ReplicaLagMonitor {
+        private volatile boolean up;
+
+        FixedMonitor(DataSource replica, boolean up) {
+            super(replica, 0, 60_000);
+            this.up = up;
+        }
+
+        @Override
+        public boolean isUsable() {
+            return up;
+        }
+
+        @Override
+        void markDown(Exception cause) {
+            up = false;
+        }
+    }
+
+    private final DataSource primary = h2("primary");
+    private final DataSource replica = h2("replica");
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, replica, monitor(true));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(routing)).contains("replica");
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertThat(url(routing)).contains("primary");
+    }
+
+    @Test
+    void laggingReplicaSendsReadsToThePrimary() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, replica, monitor(false));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(routing)).contains("primary");
+    }
+
+    @Test
+    void replicaWithoutConnectionFallsBackAndIsMarkedDown() throws SQLException {
+        DataSource broken = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("Connection refused");
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+        FixedMonitor monitor = monitor(true);
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, broken, monitor);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(routing)).contains("primary");
+        assertThat(monitor.isUsable()).isFalse();
+    }
+
+    private FixedMonitor monitor(boolean up) {
+        FixedMonitor monitor = new FixedMonitor(replica, up);
+        monitor.close();
+        return monitor;
+    }
+
+    private static String url(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
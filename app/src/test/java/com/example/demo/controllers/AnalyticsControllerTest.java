@@ -0,0 +1,138 @@
+package com.example.demo.controllers;
+
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.SalesDailyRepository;
+import com.example.demo.repositories.SalesDailyVariantRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los acumulados de ventas siguen las altas, cambios y bajas de ordenes, y la
+ * reconstruccion desde orders llega al mismo resultado.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesDailyRepository salesDailyRepository;
+
+    @Autowired
+    private SalesDailyVariantRepository salesDailyVariantRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        salesDailyRepository.deleteAll();
+        salesDailyVariantRepository.deleteAll();
+    }
+
+    @Test
+    void rollupsFollowOrderWrites() throws Exception {
+        long first = createOrder("""
+                {"status":"pending","grandTotal":30.00,"items":[
+                  {"productVariantId":1,"quantity":2,"unitPrice":10.00,"lineTotal":20.00},
+                  {"productVariantId":2,"quantity":1,"unitPrice":10.00,"lineTotal":10.00}]}
+                """);
+        long second = createOrder("""
+                {"status":"pending","grandTotal":15.00,"items":[
+                  {"productVariantId":1,"quantity":1,"unitPrice":15.00,"lineTotal":15.00}]}
+                """);
+        createOrder("""
+                {"status":"pending","grandTotal":5.00,"items":[
+                  {"productVariantId":3,"quantity":1,"unitPrice":5.00,"lineTotal":5.00}]}
+                """);
+
+        mockMvc.perform(put("/api/orders/{id}", first)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"status":"paid","grandTotal":30.00,"items":[
+                                  {"productVariantId":1,"quantity":3,"unitPrice":10.00,"lineTotal":30.00}]}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/orders/{id}", second)).andExpect(status().isOk());
+
+        assertTotals();
+
+        // La reconstruccion desde orders coincide con lo mantenido incrementalmente
+        mockMvc.perform(post("/api/analytics/rollups/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dailyRows").value(2));
+        assertTotals();
+    }
+
+    @Test
+    void dashboardIsOneQuery() throws Exception {
+        createOrder("{\"status\":\"paid\",\"grandTotal\":12.00}");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/analytics/sales/daily"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orders").value(1));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private void assertTotals() throws Exception {
+        mockMvc.perform(get("/api/analytics/sales/daily"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].orders").value(2))
+                .andExpect(jsonPath("$[0].units").value(4))
+                .andExpect(jsonPath("$[0].revenue").value(35.0));
+
+        mockMvc.perform(get("/api/analytics/sales/status"))
+                .andExpect(jsonPath("$[*].status", contains("paid", "pending")))
+                .andExpect(jsonPath("$[0].revenue").value(30.0))
+                .andExpect(jsonPath("$[1].orders").value(1));
+
+        mockMvc.perform(get("/api/analytics/sales/variants"))
+                .andExpect(jsonPath("$[*].productVariantId", contains(1, 3)))
+                .andExpect(jsonPath("$[0].units").value(3));
+    }
+
+    private long createOrder(String json) throws Exception {
+        ResultActions result = mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk());
+        JsonNode order = objectMapper.readTree(result.andReturn().getResponse().getContentAsString());
+        return order.get("id").asLong();
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.SalesByStatus;
+import com.example.demo.models.Category;
+import com.example.demo.models.Order;
+import com.example.demo.models.User;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.SalesDailyRepository;
+import com.example.demo.repositories.SalesDailyVariantRepository;
+import com.example.demo.repositories.UserRepository;
+import com.example.demo.services.CatalogCacheService;
+import com.example.demo.services.ProductBulkService;
+import com.example.demo.services.SalesRollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * El borrado y el archivado masivo trabajan por bloques con sentencias por
+ * conjunto, sin cargar ordenes, y dejan los acumulados de ventas correctos.
+ * Los productos borrados salen de la cache y del indice bloque por bloque.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.bulk.chunk-size=2")
+class BulkDeleteTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesDailyRepository salesDailyRepository;
+
+    @Autowired
+    private SalesDailyVariantRepository salesDailyVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        salesDailyRepository.deleteAll();
+        salesDailyVariantRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM order_items_archive");
+        jdbcTemplate.update("DELETE FROM orders_archive");
+    }
+
+    @Test
+    void archiveAndDeleteWithoutLoadingOrders() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(createOrder(i < 3 ? "cancelled" : "delivered"));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Por ids: tres ordenes en bloques de dos
+        mockMvc.perform(post("/api/orders/archive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("ids", List.of(ids.get(0), ids.get(3), ids.get(4))))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(3))
+                .andExpect(jsonPath("$.archived").value(3))
+                .andExpect(jsonPath("$.itemsDeleted").value(6))
+                .andExpect(jsonPath("$.chunks").value(2));
+
+        // Las archivadas siguen contando como ventas
+        LocalDate today = LocalDate.now();
+        assertThat(salesDailyRepository.findByStatus(today, today.plusDays(1)))
+                .extracting(SalesByStatus::status, SalesByStatus::orders)
+                .containsExactlyInAnyOrder(tuple("cancelled", 3L), tuple("delivered", 2L));
+
+        // Por filtro: quedan dos canceladas
+        mockMvc.perform(post("/api/orders/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"cancelled\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2))
+                .andExpect(jsonPath("$.archived").value(0))
+                .andExpect(jsonPath("$.chunks").value(1));
+
+        mockMvc.perform(post("/api/orders/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(orderRepository.count()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive", Long.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items_archive", Long.class)).isEqualTo(6);
+        // Quedan solo las archivadas, tambien despues de reconstruir desde las tablas
+        List<SalesByStatus> archivedSales = salesDailyRepository.findByStatus(today, today.plusDays(1));
+        assertThat(archivedSales)
+                .extracting(SalesByStatus::status, SalesByStatus::orders, SalesByStatus::units)
+                .containsExactlyInAnyOrder(tuple("cancelled", 1L, 3L), tuple("delivered", 2L, 6L));
+        salesRollups.rebuild(today, today.plusDays(1));
+        assertThat(salesDailyRepository.findByStatus(today, today.plusDays(1)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(archivedSales);
+        assertThat(salesDailyVariantRepository.findTopVariants(today, today.plusDays(1), null, Limit.of(10)))
+                .hasSize(2);
+    }
+
+    @Test
+    void productBulkDeleteEvictsEachCommittedChunk() throws Exception {
+        Category category = new Category();
+        category.setName("Liquidacion");
+        category = categoryRepository.save(category);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(createProduct("Saldo " + i, category.getId()));
+        }
+        for (Long id : ids) {
+            mockMvc.perform(get("/api/products/{id}", id)).andExpect(status().isOk());
+        }
+        Cache products = cacheManager.getCache(CatalogCacheService.PRODUCTS);
+
+        // El segundo bloque falla: el primero ya se confirmo y no debe seguir en la cache ni en el indice
+        jdbcTemplate.execute("CREATE TABLE product_refs (product_id BIGINT REFERENCES products(id))");
+        try {
+            jdbcTemplate.update("INSERT INTO product_refs (product_id) VALUES (?)", ids.get(3));
+            assertThatThrownBy(() -> productBulkService.delete(ids))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        } finally {
+            jdbcTemplate.execute("DROP TABLE product_refs");
+        }
+        mockMvc.perform(get("/api/products/{id}", ids.get(0))).andExpect(status().isNotFound());
+        assertThat(products.get(ids.get(1))).isNull();
+        assertThat(products.get(ids.get(2))).isNotNull();
+        mockMvc.perform(get("/api/products/search").param("q", "saldo"))
+                .andExpect(jsonPath("$.total").value(2));
+
+        mockMvc.perform(post("/api/products/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2))
+                .andExpect(jsonPath("$.chunks").value(2));
+        mockMvc.perform(get("/api/products/{id}", ids.get(3))).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/products/search").param("q", "saldo"))
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    void userBulkDeleteRunsInChunks() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setName("Baja " + i);
+            user.setEmail("baja" + i + "@example.com");
+            user.setPasswordHash("x");
+            user.setRole("customer");
+            ids.add(userRepository.save(user).getId());
+        }
+        List<Long> body = new ArrayList<>(ids);
+        body.add(ids.get(0));
+
+        mockMvc.perform(post("/api/users/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(3))
+                .andExpect(jsonPath("$.chunks").value(2));
+        assertThat(userRepository.findAllById(ids)).isEmpty();
+    }
+
+    @Test
+    void userBulkDeleteRejectsUsersWithOrders() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setName("Cliente " + i);
+            user.setEmail("cliente" + i + "@example.com");
+            user.setPasswordHash("x");
+            user.setRole("customer");
+            ids.add(userRepository.save(user).getId());
+        }
+        // El de la ultima posicion, en el segundo bloque
+        Order order = new Order();
+        order.setUserId(ids.get(2));
+        order.setStatus("pending");
+        orderRepository.save(order);
+
+        mockMvc.perform(post("/api/users/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.userIds.length()").value(1))
+                .andExpect(jsonPath("$.userIds[0]").value(ids.get(2)));
+        assertThat(userRepository.findAllById(ids)).hasSize(3);
+    }
+
+    private long createProduct(String name, long categoryId) throws Exception {
+        String body = mockMvc.perform(post("/api/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"active\":true,\"category\":{\"id\":" + categoryId + "}}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private long createOrder(String status) throws Exception {
+        String body = mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"status":"%s","grandTotal":30.00,"items":[
+                                  {"productVariantId":1,"quantity":2,"unitPrice":10.00,"lineTotal":20.00},
+                                  {"productVariantId":2,"quantity":1,"unitPrice":10.00,"lineTotal":10.00}]}
+                                """.formatted(status)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
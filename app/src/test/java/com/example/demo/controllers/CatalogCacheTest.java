@@ -0,0 +1,234 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.CatalogCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * El catalogo sale de la cache con su ETag (304 si no cambio), las escrituras
+ * lo descartan despues del commit y los aciertos y fallos quedan en las
+ * metricas de la cache.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class CatalogCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogCacheService catalogCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        category = new Category();
+        category.setName("Cache");
+        category = categoryRepository.save(category);
+    }
+
+    @Test
+    void matchingEtagAnswersNotModified() throws Exception {
+        long id = product("Buzo").getId();
+
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        String productEtag = mockMvc.perform(get("/api/products/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Buzo"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/products/{id}", id).header(HttpHeaders.IF_NONE_MATCH, productEtag))
+                .andExpect(status().isNotModified());
+        // Otro ETag: el cuerpo completo
+        mockMvc.perform(get("/api/products/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"otro\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, productEtag));
+    }
+
+    @Test
+    void writesEvictListAndItem() throws Exception {
+        long id = product("Campera").getId();
+        String listEtag = etag("/api/products");
+        mockMvc.perform(get("/api/products/{id}", id)).andExpect(jsonPath("$.name").value("Campera"));
+
+        mockMvc.perform(put("/api/products/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Campera impermeable\",\"active\":true}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/products/{id}", id)).andExpect(jsonPath("$.name").value("Campera impermeable"));
+        String afterUpdate = etag("/api/products");
+        assertThat(afterUpdate).isNotEqualTo(listEtag);
+        // El ETag anterior ya no coincide
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Gorra\",\"category\":{\"id\":" + category.getId() + "}}"))
+                .andExpect(status().isOk());
+        assertThat(etag("/api/products")).isNotEqualTo(afterUpdate);
+
+        // Renombrar la categoria descarta tambien los productos (la incluyen)
+        String withCategory = etag("/api/products");
+        mockMvc.perform(put("/api/categories/{id}", category.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Cache renombrada\"}"))
+                .andExpect(status().isOk());
+        assertThat(etag("/api/products")).isNotEqualTo(withCategory);
+    }
+
+    @Test
+    void evictInsideTransactionWaitsForCommit() throws Exception {
+        long id = product("Short").getId();
+        mockMvc.perform(get("/api/products")).andExpect(status().isOk());
+        Cache products = cacheManager.getCache(CatalogCacheService.PRODUCTS);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            catalogCache.evictProduct(id);
+            // Hasta el commit una lectura concurrente no puede recargar filas viejas
+            assertThat(products.get("all")).isNotNull();
+        });
+        assertThat(products.get("all")).isNull();
+
+        mockMvc.perform(get("/api/products")).andExpect(status().isOk());
+        tx.executeWithoutResult(status -> {
+            catalogCache.evictProduct(id);
+            status.setRollbackOnly();
+        });
+        assertThat(products.get("all")).isNotNull();
+    }
+
+    @Test
+    void loadRacingAnEvictIsNotStored() {
+        long id = product("Medias").getId();
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+
+        // Una escritura confirma y descarta mientras esta lectura cargaba la version vieja
+        catalogCache.one(CatalogCacheService.PRODUCTS, id, request, () -> {
+            Optional<?> stale = Optional.of(Map.of("id", id, "name", "Medias"));
+            catalogCache.evictProduct(id);
+            return stale;
+        });
+        assertThat(cacheManager.getCache(CatalogCacheService.PRODUCTS).get(id)).isNull();
+
+        catalogCache.one(CatalogCacheService.PRODUCTS, id, request, () -> Optional.of(Map.of("id", id)));
+        assertThat(cacheManager.getCache(CatalogCacheService.PRODUCTS).get(id)).isNotNull();
+    }
+
+    @Test
+    void cachedLoadsLeaveTheReadOnlyTransaction() {
+        long id = product("Gorra").getId();
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<Boolean> loadedReadOnly = new ArrayList<>();
+
+        // El GET corre en solo lectura (replica); lo que va a la cache se lee fuera de ella (primario)
+        readOnly.executeWithoutResult(status -> {
+            catalogCache.list(CatalogCacheService.PRODUCTS, request, () -> {
+                loadedReadOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                return productRepository.findAll();
+            });
+            catalogCache.one(CatalogCacheService.PRODUCTS, id, request, () -> {
+                loadedReadOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                return productRepository.findById(id).map(Object.class::cast);
+            });
+            assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+        });
+
+        assertThat(loadedReadOnly).containsExactly(false, false);
+        assertThat(cacheManager.getCache(CatalogCacheService.PRODUCTS).get(id)).isNotNull();
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() throws Exception {
+        product("Remera");
+        double hits = cacheGets("hit");
+        double misses = cacheGets("miss");
+
+        mockMvc.perform(get("/api/products")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/products")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/products")).andExpect(status().isOk());
+
+        assertThat(cacheGets("miss") - misses).isEqualTo(1);
+        assertThat(cacheGets("hit") - hits).isEqualTo(2);
+    }
+
+    private Product product(String name) {
+        Product product = new Product();
+        product.setCategory(category);
+        product.setName(name);
+        product.setActive(true);
+        return productRepository.save(product);
+    }
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", CatalogCacheService.PRODUCTS, "result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.CategoryTreeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Endpoints del arbol de categorias sobre Entrenamiento > Remeras > Tops y Running.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class CategoryTreeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryTreeService categoryTree;
+
+    private Category training;
+    private Category shirts;
+    private Category tops;
+    private Category running;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        training = category("Entrenamiento", null);
+        shirts = category("Remeras", training.getId());
+        tops = category("Tops", shirts.getId());
+        running = category("Running", null);
+        product("Remera basica", shirts);
+        product("Top deportivo", tops);
+        product("Short running", running);
+        categoryTree.refresh();
+    }
+
+    @Test
+    void returnsTreeSubtreeAndPaths() throws Exception {
+        mockMvc.perform(get("/api/categories/tree"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Entrenamiento", "Running")))
+                .andExpect(jsonPath("$[0].children[0].children[0].name").value("Tops"))
+                .andExpect(jsonPath("$[0].children[0].children[0].depth").value(2));
+
+        mockMvc.perform(get("/api/categories/{id}/subtree", shirts.getId()))
+                .andExpect(jsonPath("$.name").value("Remeras"))
+                .andExpect(jsonPath("$.depth").value(1))
+                .andExpect(jsonPath("$.children[*].name", contains("Tops")));
+
+        mockMvc.perform(get("/api/categories/{id}/breadcrumb", tops.getId()))
+                .andExpect(jsonPath("$[*].name", contains("Entrenamiento", "Remeras", "Tops")));
+
+        mockMvc.perform(get("/api/categories/{id}/ancestors", tops.getId()))
+                .andExpect(jsonPath("$[*].name", contains("Entrenamiento", "Remeras")));
+
+        mockMvc.perform(get("/api/categories/{id}/breadcrumb", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listsProductsOfTheWholeSubtree() throws Exception {
+        mockMvc.perform(get("/api/categories/{id}/products", training.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", containsInAnyOrder("Remera basica", "Top deportivo")));
+
+        mockMvc.perform(get("/api/categories/{id}/products", tops.getId()))
+                .andExpect(jsonPath("$.items[*].name", contains("Top deportivo")));
+    }
+
+    @Test
+    void rejectsMovingACategoryUnderItsOwnDescendant() throws Exception {
+        mockMvc.perform(put("/api/categories/{id}", training.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Entrenamiento\",\"slug\":\"entrenamiento\",\"parentId\":" + tops.getId() + "}"))
+                .andExpect(status().isBadRequest());
+
+        // Mover Tops bajo Running actualiza el arbol
+        mockMvc.perform(put("/api/categories/{id}", tops.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Tops\",\"slug\":\"tops\",\"parentId\":" + running.getId() + "}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/categories/{id}/breadcrumb", tops.getId()))
+                .andExpect(jsonPath("$[*].name", contains("Running", "Tops")));
+    }
+
+    private Category category(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        category.setSlug(name.toLowerCase());
+        category.setParentId(parentId);
+        return categoryRepository.save(category);
+    }
+
+    private void product(String name, Category category) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(name.toLowerCase().replace(' ', '-'));
+        product.setCategory(category);
+        product.setBasePrice(new BigDecimal("20.00"));
+        product.setActive(true);
+        productRepository.save(product);
+    }
+}
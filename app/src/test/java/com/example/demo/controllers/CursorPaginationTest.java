@@ -0,0 +1,192 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.models.User;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Paginas por cursor de productos y usuarios: se sigue nextCursor hasta la
+ * ultima pagina (sin cursor), y /stream devuelve un unico array JSON con las
+ * mismas filas, mas largo que un bloque de escritura.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class CursorPaginationTest {
+
+    // Mas que el bloque de JsonStreamService (100) para cruzar un entityManager.clear()
+    private static final int ROWS = 105;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Category category;
+    private String role;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Paginas " + UUID.randomUUID());
+        category = categoryRepository.save(category);
+        role = "pag-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Test
+    void productPagesFollowTheCursor() throws Exception {
+        List<Long> ids = products(5);
+
+        List<Long> seen = followPages("/api/products/page?categoryId=" + category.getId(), 2, 3);
+
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void userPagesFollowTheCursor() throws Exception {
+        List<Long> ids = users(5);
+
+        List<Long> seen = followPages("/api/users/page?role=" + role, 2, 3);
+
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void productStreamIsOneJsonArray() throws Exception {
+        List<Long> ids = products(ROWS);
+
+        JsonNode rows = stream("/api/products/stream?categoryId=" + category.getId());
+
+        assertThat(rows).extracting(row -> row.get("id").asLong()).containsExactlyElementsOf(ids);
+        JsonNode first = rows.get(0);
+        assertThat(first.get("name").asText()).isEqualTo("Producto 0");
+        assertThat(first.get("active").asBoolean()).isTrue();
+        // La categoria viene en el mismo SELECT, tambien despues del primer bloque
+        assertThat(rows.get(ROWS - 1).get("category").get("id").asLong()).isEqualTo(category.getId());
+    }
+
+    @Test
+    void userStreamIsOneJsonArrayWithoutPasswords() throws Exception {
+        List<Long> ids = users(ROWS);
+
+        JsonNode rows = stream("/api/users/stream?role=" + role);
+
+        assertThat(rows).extracting(row -> row.get("id").asLong()).containsExactlyElementsOf(ids);
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.get("role").asText()).isEqualTo(role);
+            assertThat(row.has("email")).isTrue();
+            assertThat(row.has("passwordHash")).isFalse();
+        });
+    }
+
+    // Recorre las paginas de a size; devuelve los ids en orden y comprueba cuantas paginas hubo
+    private List<Long> followPages(String path, int size, int expectedPages) throws Exception {
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            String url = path + "&size=" + size + (cursor == null ? "" : "&cursor=" + cursor);
+            JsonNode page = objectMapper.readTree(mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            JsonNode items = page.get("items");
+            assertThat(items.size()).isLessThanOrEqualTo(size);
+            items.forEach(item -> seen.add(item.get("id").asLong()));
+            pages++;
+
+            JsonNode next = page.get("nextCursor");
+            if (items.size() == size) {
+                // Pagina llena: el cursor es el ultimo id
+                assertThat(next.asLong()).isEqualTo(items.get(size - 1).get("id").asLong());
+                cursor = next.asLong();
+            } else {
+                assertThat(next == null || next.isNull()).isTrue();
+                cursor = null;
+            }
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(expectedPages);
+        return seen;
+    }
+
+    private JsonNode stream(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode rows = objectMapper.readTree(body);
+        assertThat(rows.isArray()).isTrue();
+        return rows;
+    }
+
+    private List<Long> products(int count) {
+        return save(count, i -> {
+            Product product = new Product();
+            product.setCategory(category);
+            product.setName("Producto " + i);
+            product.setActive(true);
+            return product;
+        }, productRepository::saveAll, Product::getId);
+    }
+
+    private List<Long> users(int count) {
+        return save(count, i -> {
+            User user = new User();
+            user.setName("Usuario " + i);
+            user.setEmail(role + "-" + i + "@example.com");
+            user.setPasswordHash("x");
+            user.setRole(role);
+            return user;
+        }, userRepository::saveAll, User::getId);
+    }
+
+    private static <T> List<Long> save(int count, Function<Integer, T> build,
+                                       Function<List<T>, List<T>> saveAll, Function<T, Long> idOf) {
+        List<T> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(build.apply(i));
+        }
+        return saveAll.apply(rows).stream().map(idOf).sorted().toList();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.User;
+import com.example.demo.repositories.EmailOutboxRepository;
+import com.example.demo.repositories.IdempotencyKeyRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.UserRepository;
+import com.example.demo.services.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Con Idempotency-Key un reintento recibe la respuesta original sin crear
+ * otra orden ni encolar otro correo, aun si llega mientras la primera corre.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class IdempotencyKeyTest {
+
+    private static final String ORDER = """
+            {"status":"pending","grandTotal":20.00,"items":[
+              {"productVariantId":1,"quantity":2,"unitPrice":10.00,"lineTotal":20.00}]}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository keyRepository;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        outboxRepository.deleteAll();
+        keyRepository.deleteAll();
+    }
+
+    @Test
+    void retryReplaysTheCreatedOrder() throws Exception {
+        MvcResult first = createOrder("retry-1", ORDER)
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andReturn();
+        MvcResult retry = createOrder("retry-1", ORDER)
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn();
+
+        assertThat(objectMapper.readTree(retry.getResponse().getContentAsString()))
+                .isEqualTo(objectMapper.readTree(first.getResponse().getContentAsString()));
+        assertThat(orderRepository.count()).isEqualTo(1);
+
+        // Misma clave con otro cuerpo: no se reproduce ni se ejecuta
+        createOrder("retry-1", ORDER.replace("20.00", "30.00"))
+                .andExpect(status().isUnprocessableEntity());
+        // Sin clave, cada POST crea una orden
+        mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(ORDER))
+                .andExpect(status().isOk());
+        assertThat(orderRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentRetriesWaitForTheFirst() throws Exception {
+        int clients = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < clients; i++) {
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    return createOrder("concurrent-1", ORDER)
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            start.countDown();
+            List<Long> ids = new ArrayList<>();
+            for (Future<String> response : responses) {
+                ids.add(objectMapper.readTree(response.get()).get("id").asLong());
+            }
+            assertThat(ids).containsOnly(ids.get(0));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void emailIsEnqueuedOncePerKey() throws Exception {
+        User user = new User();
+        user.setName("Ana");
+        user.setEmail("ana-idempotency@example.com");
+        user.setPasswordHash("x");
+        user.setRole("customer");
+        Long userId = userRepository.save(user).getId();
+        String body = createOrder("email-order", ORDER.replace("{\"status\"", "{\"userId\":" + userId + ",\"status\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long orderId = objectMapper.readTree(body).get("id").asLong();
+        // El correo de confirmacion de la orden
+        assertThat(outboxRepository.count()).isEqualTo(1);
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/orders/{id}/email", orderId).header(IdempotencyService.HEADER, "resend-1"))
+                    .andExpect(status().isAccepted());
+        }
+        assertThat(outboxRepository.count()).isEqualTo(2);
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void actionErrorsAreNotTakenForKeyConflicts() {
+        AtomicInteger runs = new AtomicInteger();
+        long start = System.nanoTime();
+        // Una violacion de integridad de la propia operacion se propaga: no se espera ni se reintenta
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> idempotencyService.execute("POST /test", "falla", "cuerpo", () -> {
+                runs.incrementAndGet();
+                throw new DataIntegrityViolationException("restriccion de la operacion");
+            })).isInstanceOf(DataIntegrityViolationException.class)
+                    .hasMessage("restriccion de la operacion");
+        }
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(runs).hasValue(2);
+        assertThat(keyRepository.count()).isZero();
+    }
+
+    @Test
+    void keyCommittedByAnotherInstanceIsReplayed() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        // Otra instancia tomo la clave y todavia no confirmo: nuestro INSERT queda esperando
+        try (Connection other = dataSource.getConnection()) {
+            other.setAutoCommit(false);
+            LocalDateTime now = LocalDateTime.now();
+            try (PreparedStatement insert = other.prepareStatement("""
+                    INSERT INTO idempotency_keys (id, fingerprint, response_status, content_type, response_body,
+                                                  created_at, expires_at)
+                    VALUES (?, ?, 200, 'text/plain', 'de la otra instancia', ?, ?)
+                    """)) {
+                insert.setString(1, "POST /test otra");
+                insert.setString(2, fingerprint("cuerpo"));
+                insert.setObject(3, now);
+                insert.setObject(4, now.plusHours(1));
+                insert.executeUpdate();
+            }
+            Future<ResponseEntity<?>> response = pool.submit(() -> idempotencyService.execute(
+                    "POST /test", "otra", "cuerpo", () -> {
+                        runs.incrementAndGet();
+                        return ResponseEntity.ok("de esta instancia");
+                    }));
+            Thread.sleep(200);
+            other.commit();
+
+            ResponseEntity<?> replayed = response.get(10, TimeUnit.SECONDS);
+            assertThat(replayed.getBody()).isEqualTo("de la otra instancia");
+            assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void expiredKeysAreCleanedUp() {
+        LocalDateTime past = LocalDateTime.now().minusDays(2);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (id, fingerprint, created_at, expires_at) VALUES (?, ?, ?, ?)",
+                "POST /api/orders old", "0".repeat(64), past, past.plusDays(1));
+        idempotencyService.deleteExpired();
+        assertThat(keyRepository.count()).isZero();
+    }
+
+    // Mismo calculo que IdempotencyService: SHA-256 del cuerpo en JSON
+    private String fingerprint(Object request) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(objectMapper.writeValueAsBytes(request)));
+    }
+
+    private ResultActions createOrder(String key, String body) throws Exception {
+        return mockMvc.perform(post("/api/orders")
+                .header(IdempotencyService.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
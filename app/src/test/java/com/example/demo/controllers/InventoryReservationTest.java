@@ -0,0 +1,331 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.StockLevel;
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.models.ProductVariant;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.ProductVariantRepository;
+import com.example.demo.services.InventoryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Crear una orden descuenta el stock de todas sus lineas o de ninguna; las
+ * reservas apartan unidades hasta que se usan, se cancelan o vencen. Editar,
+ * cancelar o borrar la orden ajusta el stock, y un producto con variantes no
+ * se puede borrar.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class InventoryReservationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryService inventory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long shirt;
+    private long shorts;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        jdbcTemplate.update("DELETE FROM variant_stock");
+        Category category = new Category();
+        category.setName("Remeras");
+        category = categoryRepository.save(category);
+        Product product = new Product();
+        product.setCategory(category);
+        product.setName("Remera dry-fit");
+        product = productRepository.save(product);
+        shirt = variant(product, "M").getId();
+        shorts = variant(product, "L").getId();
+    }
+
+    @Test
+    void orderTakesStockFromAllLinesOrNone() throws Exception {
+        setStock(shirt, 5);
+        setStock(shorts, 1);
+
+        mockMvc.perform(order(shirt, 3)).andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(2);
+
+        long orders = orderRepository.count();
+        mockMvc.perform(order(shirt, 3))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productVariantIds[0]").value(shirt));
+        // Dos lineas: la segunda no alcanza y la primera tampoco se descuenta
+        mockMvc.perform(order(shirt, 2, shorts, 2))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productVariantIds.length()").value(1))
+                .andExpect(jsonPath("$.productVariantIds[0]").value(shorts));
+        assertThat(orderRepository.count()).isEqualTo(orders);
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(2);
+        assertThat(inventory.stockLevel(shorts).available()).isEqualTo(1);
+
+        mockMvc.perform(order(shirt, 2, shorts, 1)).andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isZero();
+        assertThat(inventory.stockLevel(shorts).available()).isZero();
+    }
+
+    @Test
+    void lineLargerThanAnyBucketIsSplit() throws Exception {
+        // 7 unidades en 4 buckets: ninguno tiene 6
+        StockLevel level = inventory.setAvailable(shirt, 7, 4);
+        assertThat(level.buckets()).isEqualTo(4);
+
+        mockMvc.perform(order(shirt, 6)).andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT MIN(available) FROM variant_stock WHERE variant_id = ?",
+                Integer.class, shirt)).isZero();
+    }
+
+    @Test
+    void variantsWithoutStockRowsAreNotTracked() throws Exception {
+        mockMvc.perform(order(shirt, 50)).andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).buckets()).isZero();
+    }
+
+    @Test
+    void reservationIsConsumedByTheOrder() throws Exception {
+        setStock(shirt, 4);
+        String token = reserve(shirt, 3);
+        assertThat(inventory.stockLevel(shirt)).isEqualTo(new StockLevel(shirt, 1, 3, 8));
+
+        // Sin la reserva solo queda 1
+        mockMvc.perform(order(shirt, 2)).andExpect(status().isConflict());
+
+        // Se usan 2 de las 3 reservadas: la que sobra vuelve al stock
+        mockMvc.perform(order(shirt, 2).header(InventoryService.RESERVATION_HEADER, token))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt)).isEqualTo(new StockLevel(shirt, 2, 0, 8));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservations", Integer.class)).isZero();
+
+        // El token ya se uso: la orden descuenta del stock libre
+        mockMvc.perform(order(shirt, 2).header(InventoryService.RESERVATION_HEADER, token))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isZero();
+    }
+
+    @Test
+    void cancelledAndExpiredReservationsGoBackToStock() throws Exception {
+        setStock(shirt, 4);
+        String cancelled = reserve(shirt, 2);
+        mockMvc.perform(delete("/api/inventory/reservations/" + cancelled)).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/inventory/reservations/" + cancelled)).andExpect(status().isNotFound());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(4);
+
+        reserve(shirt, 3);
+        String expiring = reserve(shirt, 1);
+        mockMvc.perform(post("/api/inventory/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content(lines(shirt, 1)))
+                .andExpect(status().isConflict());
+
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ? WHERE token = ?",
+                LocalDateTime.now().minusSeconds(1), expiring);
+        assertThat(inventory.releaseExpired(100)).isEqualTo(1);
+        assertThat(inventory.releaseExpired(100)).isZero();
+        assertThat(inventory.stockLevel(shirt)).isEqualTo(new StockLevel(shirt, 1, 3, 8));
+
+        // Una orden con el token vencido ya no tiene reserva: toma la unidad libre
+        mockMvc.perform(order(shirt, 1).header(InventoryService.RESERVATION_HEADER, expiring))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isZero();
+    }
+
+    @Test
+    void editingOrderLinesMovesTheDifference() throws Exception {
+        setStock(shirt, 5);
+        setStock(shorts, 1);
+        JsonNode order = create(order(shirt, 2));
+        long id = order.get("id").asLong();
+        long shirtLine = order.get("items").get(0).get("id").asLong();
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(3);
+
+        // PATCH: se agranda una linea y se agrega otra
+        mockMvc.perform(patch("/api/orders/{id}", id).header("If-Match", "*").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":" + shirtLine + ",\"quantity\":4},"
+                                + "{\"productVariantId\":" + shorts + ",\"quantity\":1,\"unitPrice\":10.00,\"lineTotal\":10.00}]}"))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(1);
+        assertThat(inventory.stockLevel(shorts).available()).isZero();
+
+        // Sin stock para lo que se suma: 409 y ni la orden ni el stock cambian
+        mockMvc.perform(patch("/api/orders/{id}", id).header("If-Match", "*").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":" + shirtLine + ",\"quantity\":6}]}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productVariantIds[0]").value(shirt));
+        mockMvc.perform(put("/api/orders/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"pending\",\"items\":[" + line(shirt, 4) + "," + line(shorts, 2) + "]}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productVariantIds[0]").value(shorts));
+        assertThat(orderRepository.findWithItemsById(id).orElseThrow().getItems())
+                .extracting(item -> item.getQuantity()).containsExactlyInAnyOrder(4, 1);
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(1);
+
+        // PUT que reemplaza las lineas: se devuelve lo que sale y se descuenta lo que entra
+        mockMvc.perform(put("/api/orders/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"pending\",\"items\":[" + line(shirt, 1) + "]}"))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(4);
+        assertThat(inventory.stockLevel(shorts).available()).isEqualTo(1);
+
+        // Cancelar devuelve todo y reactivar vuelve a descontar
+        mockMvc.perform(put("/api/orders/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"cancelled\",\"items\":[" + line(shirt, 1) + "]}"))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(5);
+        mockMvc.perform(patch("/api/orders/{id}", id).header("If-Match", "*").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"pending\"}"))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(4);
+
+        // Borrar devuelve el stock
+        mockMvc.perform(delete("/api/orders/{id}", id)).andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(5);
+    }
+
+    @Test
+    void bulkDeleteReturnsStockOfOrdersThatWereNotCancelled() throws Exception {
+        setStock(shirt, 5);
+        long pending = create(order(shirt, 2)).get("id").asLong();
+        long cancelled = create(order(shirt, 1)).get("id").asLong();
+        mockMvc.perform(patch("/api/orders/{id}", cancelled).header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"cancelled\"}"))
+                .andExpect(status().isOk());
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(3);
+
+        mockMvc.perform(post("/api/orders/bulk-delete").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + pending + "," + cancelled + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+        // La cancelada ya habia devuelto su unidad: no se cuenta dos veces
+        assertThat(inventory.stockLevel(shirt).available()).isEqualTo(5);
+    }
+
+    @Test
+    void productWithVariantsIsNotDeleted() throws Exception {
+        long product = variantRepository.findById(shirt).orElseThrow().getProductId();
+        Product plain = new Product();
+        plain.setCategory(productRepository.findById(product).orElseThrow().getCategory());
+        plain.setName("Producto sin variantes");
+        long withoutVariants = productRepository.save(plain).getId();
+
+        mockMvc.perform(delete("/api/products/{id}", product))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productIds[0]").value(product));
+        // Masivo: se informa el que tiene variantes y no se borra ninguno
+        mockMvc.perform(post("/api/products/bulk-delete").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + withoutVariants + "," + product + "]"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.productIds.length()").value(1))
+                .andExpect(jsonPath("$.productIds[0]").value(product));
+        assertThat(productRepository.existsById(product)).isTrue();
+        assertThat(productRepository.existsById(withoutVariants)).isTrue();
+
+        mockMvc.perform(post("/api/products/bulk-delete").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + withoutVariants + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1));
+    }
+
+    private ProductVariant variant(Product product, String size) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setSku("REM-" + product.getId() + "-" + size);
+        variant.setSize(size);
+        variant.setActive(true);
+        return variantRepository.save(variant);
+    }
+
+    private void setStock(long variantId, int available) throws Exception {
+        mockMvc.perform(put("/api/inventory/variants/" + variantId + "/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"available\":" + available + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(available));
+    }
+
+    private String reserve(long variantId, int quantity) throws Exception {
+        String body = mockMvc.perform(post("/api/inventory/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content(lines(variantId, quantity)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode hold = objectMapper.readTree(body);
+        assertThat(hold.get("expiresAt").asText()).isNotEmpty();
+        return hold.get("token").asText();
+    }
+
+    private JsonNode create(MockHttpServletRequestBuilder request) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static String line(long variantId, int quantity) {
+        return "{\"productVariantId\":" + variantId + ",\"quantity\":" + quantity
+                + ",\"unitPrice\":10.00,\"lineTotal\":" + quantity * 10 + "}";
+    }
+
+    private static String lines(long variantId, int quantity) {
+        return "{\"items\":[{\"productVariantId\":" + variantId + ",\"quantity\":" + quantity + "}]}";
+    }
+
+    private static MockHttpServletRequestBuilder order(long... variantsAndQuantities) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < variantsAndQuantities.length; i += 2) {
+            items.append(i == 0 ? "" : ",")
+                    .append("{\"productVariantId\":").append(variantsAndQuantities[i])
+                    .append(",\"quantity\":").append(variantsAndQuantities[i + 1])
+                    .append(",\"unitPrice\":10.00,\"lineTotal\":").append(variantsAndQuantities[i + 1] * 10).append("}");
+        }
+        return post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\":\"pending\",\"items\":[" + items + "]}");
+    }
+}
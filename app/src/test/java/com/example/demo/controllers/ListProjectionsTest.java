@@ -0,0 +1,134 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.models.User;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.UserRepository;
+import com.example.demo.services.CatalogCacheService;
+import com.example.demo.services.CategoryTreeService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los listados devuelven resumenes armados en una sola consulta y nunca el hash de la contraseña.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class ListProjectionsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogCacheService catalogCache;
+
+    @Autowired
+    private CategoryTreeService categoryTree;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+
+        User user = new User();
+        user.setName("Ana");
+        user.setEmail("ana@example.com");
+        user.setPasswordHash("secreto");
+        user.setRole("customer");
+        userId = userRepository.save(user).getId();
+
+        // Tres categorias distintas: con la entidad serian consultas extra por categoria
+        for (int c = 0; c < 3; c++) {
+            Category category = new Category();
+            category.setName("Categoria " + c);
+            category = categoryRepository.save(category);
+            for (int p = 0; p < 4; p++) {
+                Product product = new Product();
+                product.setCategory(category);
+                product.setName("Producto " + c + "-" + p);
+                product.setDescription("Descripcion larga que no va en el listado");
+                product.setBasePrice(new BigDecimal("10.00"));
+                product.setActive(true);
+                productRepository.save(product);
+            }
+        }
+        catalogCache.evictCategory(null);
+        // El arbol se carga una vez y queda en memoria entre pedidos
+        categoryTree.refresh();
+        categoryTree.tree();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void usersNeverExposePasswordHash() throws Exception {
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("ana@example.com"))
+                .andExpect(jsonPath("$[0].passwordHash").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(jsonPath("$.name").value("Ana"))
+                .andExpect(jsonPath("$.passwordHash").doesNotExist());
+    }
+
+    @Test
+    void productListTakesCategoryNamesFromMemory() throws Exception {
+        mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12))
+                .andExpect(jsonPath("$[0].category.name").value("Categoria 0"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+
+        // Solo products: las categorias ya estan en el arbol en memoria
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void productPageFetchesCategoriesInTheSameQuery() throws Exception {
+        mockMvc.perform(get("/api/products/page").param("size", "12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(12))
+                .andExpect(jsonPath("$.items[11].category.name").value("Categoria 2"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * La exportacion NDJSON escribe una linea por fila desde el cursor, con los
+ * items de cada orden anidados, y se comprime solo si el cliente acepta gzip.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+// Un fetch size chico para que la exportacion cruce varios bloques del cursor
+@TestPropertySource(properties = "app.export.fetch-size=2")
+class NdjsonExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void ordersAreOneLineEachWithTheirItems() throws Exception {
+        long first = createOrder("pending", """
+                {"productVariantId":1,"quantity":2,"unitPrice":10.00,"lineTotal":20.00},
+                {"productVariantId":2,"quantity":1,"unitPrice":5.50,"lineTotal":5.50},
+                {"productVariantId":3,"quantity":1,"unitPrice":4.50,"lineTotal":4.50}""");
+        long empty = createOrder("pending", "");
+        long shipped = createOrder("shipped", """
+                {"productVariantId":4,"quantity":1,"unitPrice":30.00,"lineTotal":30.00}""");
+
+        MvcResult result = export(get("/api/orders/export"), false);
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+        List<JsonNode> lines = lines(result.getResponse().getContentAsByteArray());
+
+        assertThat(lines).extracting(line -> line.get("id").asLong()).containsExactly(first, empty, shipped);
+        assertThat(lines.get(0).get("items")).hasSize(3);
+        assertThat(lines.get(0).at("/items/1/unitPrice").decimalValue()).isEqualByComparingTo("5.50");
+        assertThat(lines.get(0).get("createdAt").isTextual()).isTrue();
+        assertThat(lines.get(1).get("items")).isEmpty();
+        assertThat(lines.get(2).at("/items/0/productVariantId").asLong()).isEqualTo(4);
+
+        List<JsonNode> filtered = lines(export(get("/api/orders/export").param("status", "shipped"), false)
+                .getResponse().getContentAsByteArray());
+        assertThat(filtered).singleElement().satisfies(line -> assertThat(line.get("id").asLong()).isEqualTo(shipped));
+    }
+
+    @Test
+    void productsAreGzippedWhenAccepted() throws Exception {
+        Category category = new Category();
+        category.setName("Calzado");
+        category = categoryRepository.save(category);
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product();
+            product.setCategory(category);
+            product.setName("Zapatilla " + i);
+            product.setBasePrice(new BigDecimal("59.90"));
+            product.setActive(i % 2 == 0);
+            productRepository.save(product);
+        }
+
+        MvcResult result = export(get("/api/products/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"), true);
+        byte[] body;
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            body = in.readAllBytes();
+        }
+        List<JsonNode> lines = lines(body);
+        assertThat(lines).hasSize(5);
+        assertThat(lines.get(0).get("categoryId").asLong()).isEqualTo(category.getId());
+        assertThat(lines.get(0).get("name").asText()).isEqualTo("Zapatilla 0");
+        assertThat(lines.get(0).has("category")).isFalse();
+
+        List<JsonNode> active = lines(export(get("/api/products/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
+                .param("active", "true"), false).getResponse().getContentAsByteArray());
+        assertThat(active).hasSize(3).allSatisfy(line -> assertThat(line.get("active").asBoolean()).isTrue());
+    }
+
+    private MvcResult export(RequestBuilder builder, boolean gzip)
+            throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo(gzip ? "gzip" : null);
+        return result;
+    }
+
+    private List<JsonNode> lines(byte[] body) throws IOException {
+        String text = new String(body, StandardCharsets.UTF_8);
+        assertThat(text).endsWith("\n");
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private long createOrder(String status, String items) throws Exception {
+        String body = mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"status":"%s","grandTotal":30.00,"items":[%s]}
+                                """.formatted(status, items)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
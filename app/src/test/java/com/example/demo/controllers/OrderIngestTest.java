@@ -0,0 +1,139 @@
+package com.example.demo.controllers;
+
+import com.example.demo.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * La carga masiva acepta un array JSON o NDJSON, guarda por bloques con
+ * INSERT en batch y devuelve el resultado de cada registro: uno invalido o uno
+ * que rompe su bloque falla solo.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.orders.bulk.chunk-size=50")
+class OrderIngestTest {
+
+    private static final int ORDERS = 120;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void jsonArrayIsInsertedInBatches() throws Exception {
+        List<String> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(order("pending", 1));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/api/orders/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", orders) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(ORDERS))
+                .andExpect(jsonPath("$.created").value(ORDERS))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.results[119].index").value(119))
+                .andExpect(jsonPath("$.results[119].id").isNumber());
+
+        assertThat(orderRepository.count()).isEqualTo(ORDERS);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(2L * ORDERS);
+        // Tres bloques: un INSERT en batch por tabla y bloque mas las secuencias, no una sentencia por fila
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(30);
+    }
+
+    @Test
+    void ndjsonReportsEachInvalidRecordByIndex() throws Exception {
+        String body = String.join("\n",
+                order("pending", 2),
+                "{\"status\":\"pending\",\"items\":[{\"id\":7,\"productVariantId\":1,\"quantity\":1}]}",
+                "{\"status\":\"pending\",\"items\":[{\"productVariantId\":1,\"quantity\":\"muchos\"}]}",
+                "{\"status\":\"pending\",\"items\":[{\"productVariantId\":1,\"quantity\":0}]}",
+                order(null, 1)) + "\n";
+
+        String response = mockMvc.perform(post("/api/orders/bulk").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode results = objectMapper.readTree(response).get("results");
+        assertThat(results).extracting(r -> r.get("index").asInt()).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(r -> r.get("status").asText())
+                .containsExactly("created", "failed", "failed", "failed", "created");
+        assertThat(results.get(1).get("error").asText()).isEqualTo("Los items no deben traer id");
+        assertThat(results.get(3).get("error").asText()).isEqualTo("Cantidad invalida en un item");
+        // Sin estado se guarda como pending
+        assertThat(orderRepository.findById(results.get(4).get("id").asLong()).orElseThrow().getStatus())
+                .isEqualTo("pending");
+    }
+
+    @Test
+    void recordThatBreaksItsChunkFailsAlone() throws Exception {
+        // Pasa la validacion pero el INSERT falla (estado mas largo que la columna) y deshace el bloque
+        List<String> orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orders.add(order(i == 2 ? "x".repeat(300) : "pending", 1));
+        }
+
+        mockMvc.perform(post("/api/orders/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", orders) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(4))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[2].status").value("failed"))
+                .andExpect(jsonPath("$.results[2].id").doesNotExist())
+                .andExpect(jsonPath("$.results[2].error").isNotEmpty())
+                .andExpect(jsonPath("$.results[3].status").value("created"));
+
+        // Las del mismo bloque se guardaron una por una, con sus items
+        assertThat(orderRepository.count()).isEqualTo(4);
+        assertThat(orderRepository.findAll()).allSatisfy(order -> assertThat(order.getStatus()).isEqualTo("pending"));
+    }
+
+    private static String order(String status, int quantity) {
+        return "{" + (status == null ? "" : "\"status\":\"" + status + "\",")
+                + "\"grandTotal\":" + quantity * 10 + ".00,\"items\":[{\"productVariantId\":1,\"quantity\":" + quantity
+                + ",\"unitPrice\":10.00,\"lineTotal\":" + quantity * 10 + ".00}]}";
+    }
+}
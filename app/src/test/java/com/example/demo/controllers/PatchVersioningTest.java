@@ -0,0 +1,247 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Order;
+import com.example.demo.models.Product;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.CatalogCacheService;
+import com.example.demo.services.ProductSearchIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los PATCH cambian solo lo enviado, en un UPDATE condicionado por la version,
+ * y una version vieja se rechaza en vez de pisar la edicion de otro.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class PatchVersioningTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CatalogCacheService catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        catalogCache.evictCategory(null);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void productPatchIsOneConditionalUpdate() throws Exception {
+        Category category = new Category();
+        category.setName("Camisetas");
+        category = categoryRepository.save(category);
+        Product product = new Product();
+        product.setCategory(category);
+        product.setName("Camiseta basica");
+        product.setDescription("Algodon");
+        product.setBasePrice(new BigDecimal("20.00"));
+        product.setActive(true);
+        Long id = productRepository.save(product).getId();
+        searchIndex.index(product);
+
+        statistics.clear();
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Camiseta premium\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        // Los campos no enviados quedan igual; la cache y el indice ven el cambio
+        mockMvc.perform(get("/api/products/{id}", id))
+                .andExpect(jsonPath("$.name").value("Camiseta premium"))
+                .andExpect(jsonPath("$.description").value("Algodon"))
+                .andExpect(jsonPath("$.version").value(1));
+        mockMvc.perform(get("/api/products/search").param("q", "premium"))
+                .andExpect(jsonPath("$.items[0].id").value(id));
+
+        // Otro cliente con la version que ya no existe
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"basePrice\":1.00}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"basePrice\":1.00,\"version\":0}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"basePrice\":1.00}"))
+                .andExpect(status().isPreconditionRequired());
+        mockMvc.perform(patch("/api/products/{id}", id + 1000)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"basePrice\":1.00}"))
+                .andExpect(status().isNotFound());
+
+        assertThat(productRepository.findById(id).orElseThrow().getBasePrice()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void productEtagFromGetIsAcceptedAsIfMatch() throws Exception {
+        Category category = new Category();
+        category.setName("Buzos");
+        category = categoryRepository.save(category);
+        Product product = new Product();
+        product.setCategory(category);
+        product.setName("Buzo");
+        product.setActive(true);
+        Long id = productRepository.save(product).getId();
+
+        String etag = mockMvc.perform(get("/api/products/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Buzo con capucha\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // El ETag nuevo del GET tambien sirve; el viejo ya no
+        String fresh = mockMvc.perform(get("/api/products/{id}", id))
+                .andExpect(jsonPath("$.name").value("Buzo con capucha"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(fresh).isNotEqualTo(etag);
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"active\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, fresh)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"active\":false}"))
+                .andExpect(status().isNoContent());
+
+        // El ETag de la lista no es de una fila: nunca coincide
+        String listEtag = mockMvc.perform(get("/api/products"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(patch("/api/products/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, listEtag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"active\":true}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void orderPatchTouchesOnlyTheChangedLines() throws Exception {
+        String created = mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"status":"pending","grandTotal":35.00,"items":[
+                                  {"productVariantId":1,"quantity":1,"unitPrice":10.00,"lineTotal":10.00},
+                                  {"productVariantId":2,"quantity":1,"unitPrice":15.00,"lineTotal":15.00},
+                                  {"productVariantId":3,"quantity":1,"unitPrice":10.00,"lineTotal":10.00}]}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode order = objectMapper.readTree(created);
+        long id = order.get("id").asLong();
+        long keep = order.at("/items/0/id").asLong();
+        long change = order.at("/items/1/id").asLong();
+        long remove = order.at("/items/2/id").asLong();
+
+        String etag = mockMvc.perform(get("/api/orders/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isEqualTo("\"0\"");
+
+        statistics.clear();
+        String patched = mockMvc.perform(patch("/api/orders/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"grandTotal":55.00,"items":[
+                                  {"id":%d,"quantity":3,"lineTotal":45.00},
+                                  {"id":%d,"delete":true}]}
+                                """.formatted(change, remove)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // Sin borrar y reinsertar todas las lineas: ninguna insercion en order_items
+        assertThat(statistics.getEntityInsertCount()).isZero();
+        assertThat(statistics.getEntityDeleteCount()).isEqualTo(1);
+
+        Order saved = orderRepository.findWithItemsById(id).orElseThrow();
+        assertThat(patched).isEqualTo("\"" + saved.getVersion() + "\"");
+        assertThat(saved.getGrandTotal()).isEqualByComparingTo("55.00");
+        assertThat(saved.getItems()).extracting(item -> item.getId()).containsExactlyInAnyOrder(keep, change);
+
+        // La version vieja ya no sirve, tampoco para cambiar solo una linea
+        mockMvc.perform(patch("/api/orders/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":%d,\"quantity\":9}]}".formatted(keep)))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/orders/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, patched)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":%d,\"quantity\":9}]}".formatted(remove)))
+                .andExpect(status().isBadRequest());
+        String afterLineChange = mockMvc.perform(patch("/api/orders/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, patched)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":%d,\"quantity\":2}]}".formatted(keep)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(afterLineChange).isNotEqualTo(patched);
+        assertThat(afterLineChange)
+                .isEqualTo("\"" + orderRepository.findById(id).orElseThrow().getVersion() + "\"");
+    }
+}
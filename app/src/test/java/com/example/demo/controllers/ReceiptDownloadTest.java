@@ -0,0 +1,174 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.services.PdfService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Descarga de un recibo: el pool de render genera los bytes sin esperar al
+ * cliente, se reutiliza de la cache mientras la orden no cambie y con el pool
+ * saturado se responde 503 con Retry-After.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.pdf.render-threads=1", "app.pdf.render-queue=1"})
+class ReceiptDownloadTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        order = new Order();
+        order.setStatus("pending");
+        order.setGrandTotal(new BigDecimal("20.00"));
+        OrderItem item = new OrderItem();
+        item.setProductVariantId(1L);
+        item.setQuantity(2);
+        item.setUnitPrice(new BigDecimal("10.00"));
+        item.setLineTotal(new BigDecimal("20.00"));
+        order.setItems(new ArrayList<>(List.of(item)));
+        order = orderRepository.save(order);
+    }
+
+    @Test
+    void unchangedOrderIsServedFromCache() throws Exception {
+        long renders = renders();
+        double hits = cacheGets("hit");
+
+        byte[] first = download(order.getId());
+        assertThat(new String(first, 0, 4, StandardCharsets.ISO_8859_1)).isEqualTo("%PDF");
+        assertThat(renders()).isEqualTo(renders + 1);
+
+        byte[] second = download(order.getId());
+        assertThat(second).isEqualTo(first);
+        assertThat(renders()).isEqualTo(renders + 1);
+        assertThat(cacheGets("hit") - hits).isEqualTo(1);
+
+        // Otro contenido, otra version: se vuelve a renderizar
+        Order paid = orderRepository.findWithItemsById(order.getId()).orElseThrow();
+        paid.setStatus("paid");
+        orderRepository.save(paid);
+        byte[] third = download(order.getId());
+        assertThat(third).isNotEqualTo(first);
+        assertThat(renders()).isEqualTo(renders + 2);
+    }
+
+    @Test
+    void renderDoesNotWaitForTheClient() throws Exception {
+        ThreadPoolExecutor renderExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(pdfService, "renderExecutor");
+        long completed = renderExecutor.getCompletedTaskCount();
+
+        // Nadie escribe el recibo en una respuesta: el hilo de render termina igual y queda libre
+        pdfService.openOrderReceipt(orderRepository.findWithItemsById(order.getId()).orElseThrow());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (renderExecutor.getCompletedTaskCount() == completed && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(renderExecutor.getCompletedTaskCount()).isEqualTo(completed + 1);
+
+        // El PDF ya quedo en la cache
+        double hits = cacheGets("hit");
+        assertThat(new String(download(order.getId()), 0, 4, StandardCharsets.ISO_8859_1)).isEqualTo("%PDF");
+        assertThat(cacheGets("hit") - hits).isEqualTo(1);
+    }
+
+    @Test
+    void saturatedPoolAnswersServiceUnavailable() throws Exception {
+        // Un render ocupa el unico hilo y otro la unica posicion de la cola
+        ThreadPoolExecutor renderExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(pdfService, "renderExecutor");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        renderExecutor.execute(() -> {
+            running.countDown();
+            awaitQuietly(release);
+        });
+        running.await();
+        renderExecutor.execute(() -> awaitQuietly(release));
+
+        try {
+            mockMvc.perform(get("/api/orders/{id}/pdf", order.getId()))
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(download(order.getId())).isNotEmpty();
+    }
+
+    private byte[] download(long id) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/orders/{id}/pdf", id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=recibo_orden_" + id + ".pdf"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private long renders() {
+        return meterRegistry.get("pdf.render").timer().count();
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", "pdfReceipts", "result", result)
+                .functionCounter().count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.ReceiptExportProgress;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.services.PdfService;
+import com.example.demo.services.ReceiptExportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exportacion de recibos: un PDF por orden dentro del ZIP, errores aparte y avance consultable.
+ * Un cliente lento frena los renders en el maximo en vuelo y uno que se desconecta cancela lo pendiente.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class ReceiptExportTest {
+
+    private static final int ORDERS = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private List<Long> ids;
+
+    // Cuenta los renders que empiezan; con gate, todos menos el primero esperan a que se abra
+    private static class CountingPdfService extends PdfService {
+        final AtomicInteger started = new AtomicInteger();
+        final CountDownLatch gate;
+
+        CountingPdfService(CountDownLatch gate) {
+            super(new SimpleMeterRegistry(), 1, 1, 1024 * 1024);
+            this.gate = gate;
+        }
+
+        @Override
+        public byte[] generateOrderReceipt(Order order) {
+            if (started.incrementAndGet() > 1 && gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Render cancelado", e);
+                }
+            }
+            return super.generateOrderReceipt(order);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setStatus("paid");
+            order.setGrandTotal(new BigDecimal("10.00"));
+            OrderItem item = new OrderItem();
+            item.setProductVariantId(1L);
+            item.setQuantity(1);
+            item.setUnitPrice(new BigDecimal("10.00"));
+            item.setLineTotal(new BigDecimal("10.00"));
+            order.setItems(new ArrayList<>(List.of(item)));
+            orders.add(order);
+        }
+        ids = orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+
+    @Test
+    void streamsOneReceiptPerOrderAndReportsMissingOnes() throws Exception {
+        List<String> requested = new ArrayList<>(ids.stream().map(String::valueOf).toList());
+        requested.add("999999");
+
+        MvcResult result = mockMvc.perform(get("/api/orders/receipts").param("ids", String.join(",", requested)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult finished = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, byte[]> entries = unzip(finished.getResponse().getContentAsByteArray());
+        assertThat(entries).hasSize(ORDERS + 1);
+        assertThat(entries).containsKey("recibo_orden_" + ids.get(0) + ".pdf");
+        assertThat(new String(entries.get("recibo_orden_" + ids.get(0) + ".pdf"), 0, 4, StandardCharsets.ISO_8859_1))
+                .isEqualTo("%PDF");
+        assertThat(new String(entries.get("errores.txt"), StandardCharsets.UTF_8)).startsWith("999999:");
+
+        String exportId = result.getResponse().getHeader("X-Export-Id");
+        mockMvc.perform(get("/api/orders/receipts/exports/{id}", exportId))
+                .andExpect(jsonPath("$.state").value("DONE"))
+                .andExpect(jsonPath("$.total").value(ORDERS + 1))
+                .andExpect(jsonPath("$.done").value(ORDERS))
+                .andExpect(jsonPath("$.failed").value(1));
+    }
+
+    @Test
+    void repeatedIdsAreExportedOnce() throws Exception {
+        // Cinco veces la lista: las repeticiones caen en otros bloques de carga
+        List<String> requested = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.forEach(id -> requested.add(String.valueOf(id)));
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/orders/receipts").param("ids", String.join(",", requested)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult finished = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(unzip(finished.getResponse().getContentAsByteArray())).hasSize(ORDERS);
+        mockMvc.perform(get("/api/orders/receipts/exports/{id}", result.getResponse().getHeader("X-Export-Id")))
+                .andExpect(jsonPath("$.state").value("DONE"))
+                .andExpect(jsonPath("$.total").value(ORDERS))
+                .andExpect(jsonPath("$.done").value(ORDERS))
+                .andExpect(jsonPath("$.failed").value(0));
+    }
+
+    @Test
+    void requiresIdsOrARange() throws Exception {
+        mockMvc.perform(get("/api/orders/receipts"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void clientDisconnectCancelsTheExportAndItsQueuedRenders() throws Exception {
+        // Un hilo y cuatro en vuelo: mientras se escribe el primero, uno se renderiza y dos esperan en la cola
+        CountDownLatch gate = new CountDownLatch(1);
+        CountingPdfService pdf = new CountingPdfService(gate);
+        ReceiptExportService service = new ReceiptExportService(orderRepository, pdf, new SimpleMeterRegistry(), 1, 4);
+        try {
+            ReceiptExportService.Export export = service.start(ids);
+            OutputStream disconnected = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("Broken pipe");
+                }
+            };
+
+            assertThatThrownBy(() -> service.write(export, disconnected)).isInstanceOf(IOException.class);
+
+            ReceiptExportProgress progress = service.progress(export.getId()).orElseThrow();
+            assertThat(progress.state()).isEqualTo(ReceiptExportService.CANCELLED);
+            assertThat(progress.done()).isZero();
+            // Sin cancelar, al abrir el gate se renderizarian los cuatro; solo queda el primero
+            // y, si el hilo ya lo habia tomado, el segundo
+            gate.countDown();
+            Thread.sleep(300);
+            assertThat(pdf.started.get()).isLessThanOrEqualTo(2);
+        } finally {
+            gate.countDown();
+            service.shutdown();
+            pdf.shutdown();
+        }
+    }
+
+    @Test
+    void slowClientStopsRenderingAtMaxInFlight() throws Exception {
+        int maxInFlight = 3;
+        CountingPdfService pdf = new CountingPdfService(null);
+        ReceiptExportService service = new ReceiptExportService(orderRepository, pdf, new SimpleMeterRegistry(), 2, maxInFlight);
+        CountDownLatch reading = new CountDownLatch(1);
+        // El cliente no lee nada hasta que se lo indica el test
+        OutputStream slowClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    reading.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            ReceiptExportService.Export export = service.start(ids);
+            Future<?> written = client.submit(() -> {
+                service.write(export, slowClient);
+                return null;
+            });
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (pdf.started.get() < maxInFlight && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            // Con el cliente parado no se renderiza nada mas
+            Thread.sleep(300);
+            assertThat(pdf.started.get()).isEqualTo(maxInFlight);
+            assertThat(service.progress(export.getId()).orElseThrow().done()).isZero();
+
+            reading.countDown();
+            written.get(30, TimeUnit.SECONDS);
+            assertThat(pdf.started.get()).isEqualTo(ORDERS);
+            ReceiptExportProgress progress = service.progress(export.getId()).orElseThrow();
+            assertThat(progress.state()).isEqualTo(ReceiptExportService.DONE);
+            assertThat(progress.done()).isEqualTo(ORDERS);
+        } finally {
+            reading.countDown();
+            client.shutdownNow();
+            service.shutdown();
+            pdf.shutdown();
+        }
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws Exception {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
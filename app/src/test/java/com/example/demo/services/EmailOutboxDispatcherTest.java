@@ -0,0 +1,192 @@
+package com.example.demo.services;
+
+import com.example.demo.models.EmailOutbox;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.example.demo.models.User;
+import com.example.demo.repositories.EmailOutboxRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.UserRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La bandeja de salida contra un servidor HTTP local que hace de Resend.
+ */
+@SpringBootTest(properties = {
+        "app.email.outbox.enabled=true",
+        "app.email.outbox.initial-delay-ms=3600000",
+        "app.email.outbox.max-attempts=3",
+        "resend.api.key=test-key"
+})
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class EmailOutboxDispatcherTest {
+
+    private static final HttpServer resend;
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger responseStatus = new AtomicInteger(200);
+
+    static {
+        try {
+            resend = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        resend.createContext("/emails", exchange -> {
+            received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = "{\"id\":\"stub\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseStatus.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        resend.start();
+    }
+
+    @DynamicPropertySource
+    static void resendUrl(DynamicPropertyRegistry registry) {
+        registry.add("resend.api.url", () -> "http://localhost:" + resend.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        resend.stop(0);
+    }
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+        received.clear();
+        responseStatus.set(200);
+
+        User user = new User();
+        user.setName("Cliente");
+        user.setEmail("cliente@example.com");
+        user.setPasswordHash("x");
+        user.setRole("customer");
+        userId = userRepository.save(user).getId();
+    }
+
+    @Test
+    void createdOrderIsSentAndMarkedSent() {
+        orderService.create(order());
+
+        assertThat(dispatcher.dispatchOnce()).isEqualTo(1);
+
+        assertThat(received).hasSize(1);
+        assertThat(received.get(0)).contains("cliente@example.com");
+        EmailOutbox email = outboxRepository.findAll().get(0);
+        assertThat(email.getState()).isEqualTo(EmailOutbox.SENT);
+        assertThat(email.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void failedSendIsRescheduledWithBackoff() {
+        responseStatus.set(500);
+        orderService.create(order());
+
+        dispatcher.dispatchOnce();
+
+        EmailOutbox email = outboxRepository.findAll().get(0);
+        assertThat(email.getState()).isEqualTo(EmailOutbox.PENDING);
+        assertThat(email.getAttempts()).isEqualTo(1);
+        assertThat(email.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(20));
+        // Ya no esta vencido, el siguiente ciclo no lo toma
+        assertThat(dispatcher.dispatchOnce()).isZero();
+    }
+
+    @Test
+    void exhaustedEmailGoesToDeadLetter() {
+        responseStatus.set(503);
+        orderService.create(order());
+
+        for (int i = 0; i < 3; i++) {
+            makeDue();
+            dispatcher.dispatchOnce();
+        }
+
+        EmailOutbox email = outboxRepository.findAll().get(0);
+        assertThat(email.getState()).isEqualTo(EmailOutbox.DEAD);
+        assertThat(email.getAttempts()).isEqualTo(3);
+        assertThat(received).hasSize(3);
+    }
+
+    @Test
+    void orderWithoutStatusDoesNotBlockItsBatch() {
+        Order withoutStatus = order();
+        withoutStatus.setStatus(null);
+        orderService.create(withoutStatus);
+        orderService.create(order());
+
+        assertThat(dispatcher.dispatchOnce()).isEqualTo(2);
+
+        // Un solo POST a /emails/batch con los dos correos
+        assertThat(received).hasSize(1);
+        assertThat(received.get(0)).contains("Pendiente");
+        assertThat(outboxRepository.findAll())
+                .extracting(EmailOutbox::getState)
+                .containsOnly(EmailOutbox.SENT);
+        assertThat(outboxRepository.findAll())
+                .extracting(EmailOutbox::getOrderStatus)
+                .containsExactlyInAnyOrder(null, "pending");
+    }
+
+    private void makeDue() {
+        outboxRepository.findAll().forEach(email -> {
+            email.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            outboxRepository.save(email);
+        });
+    }
+
+    private Order order() {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus("pending");
+        order.setGrandTotal(new BigDecimal("10.00"));
+        OrderItem item = new OrderItem();
+        item.setProductVariantId(1L);
+        item.setQuantity(1);
+        item.setUnitPrice(new BigDecimal("10.00"));
+        item.setLineTotal(new BigDecimal("10.00"));
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.EmailResult;
+import com.example.demo.dto.OrderEmail;
+import com.example.demo.models.Order;
+import com.example.demo.models.User;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Plantilla precompilada y envio por lotes contra un servidor local que hace de Resend.
+ */
+@SpringBootTest(properties = "resend.api.key=test-key")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class EmailServiceBatchTest {
+
+    private static final ObjectMapper json = new ObjectMapper();
+    private static final HttpServer resend;
+    private static final AtomicInteger batchCalls = new AtomicInteger();
+    private static final AtomicInteger singleCalls = new AtomicInteger();
+
+    static {
+        try {
+            resend = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // Como Resend: un lote con un destinatario invalido se rechaza entero
+        resend.createContext("/emails/batch", exchange -> {
+            batchCalls.incrementAndGet();
+            JsonNode emails = json.readTree(exchange.getRequestBody());
+            if (emails.toString().contains("invalido")) {
+                respond(exchange, 422, "{\"message\":\"Invalid `to` field\"}");
+                return;
+            }
+            StringBuilder data = new StringBuilder("{\"data\":[");
+            for (int i = 0; i < emails.size(); i++) {
+                data.append(i > 0 ? "," : "").append("{\"id\":\"msg-").append(i).append("\"}");
+            }
+            respond(exchange, 200, data.append("]}").toString());
+        });
+        resend.createContext("/emails", exchange -> {
+            singleCalls.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            respond(exchange, body.contains("invalido") ? 422 : 200, "{\"id\":\"single\"}");
+        });
+        resend.start();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @DynamicPropertySource
+    static void resendUrl(DynamicPropertyRegistry registry) {
+        registry.add("resend.api.url", () -> "http://localhost:" + resend.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        resend.stop(0);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        batchCalls.set(0);
+        singleCalls.set(0);
+    }
+
+    @Test
+    void templateIsFilledPerStatusAndOrder() {
+        String html = emailService.buildEmailHtml(42L, "shipped");
+
+        assertThat(html).contains("#42", "Enviado", "background: #9C27B0", "#667eea 0%, #764ba2 100%");
+        assertThat(html).doesNotContain("{{");
+        // La parte del estado sale de la cache; solo cambia el numero de orden
+        assertThat(emailService.buildEmailHtml(43L, "shipped")).isEqualTo(html.replace("#42", "#43"));
+        assertThat(emailService.buildEmailHtml(1L, "<b>raro</b>")).contains("&lt;b&gt;raro&lt;/b&gt;");
+    }
+
+    @Test
+    void bulkNotifyGroupsRecipientsIntoBatchCalls() throws Exception {
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+        User user = new User();
+        user.setName("Cliente");
+        user.setEmail("cliente@example.com");
+        user.setPasswordHash("x");
+        user.setRole("customer");
+        Long userId = userRepository.save(user).getId();
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Order order = new Order();
+            order.setUserId(userId);
+            order.setStatus("shipped");
+            order.setGrandTotal(new BigDecimal("10.00"));
+            orders.add(order);
+        }
+        List<Long> ids = new ArrayList<>(orderRepository.saveAll(orders).stream().map(Order::getId).toList());
+        ids.add(999_999L);
+
+        mockMvc.perform(post("/api/orders/notify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(1001))
+                .andExpect(jsonPath("$.sent").value(1000))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].id").value("msg-0"))
+                .andExpect(jsonPath("$.results[1000].orderId").value(999_999));
+
+        // 1000 destinatarios en 10 llamadas en lugar de 1000
+        assertThat(batchCalls.get()).isEqualTo(10);
+        assertThat(singleCalls.get()).isZero();
+    }
+
+    @Test
+    void rejectedBatchIsRetriedOneByOne() {
+        List<EmailResult> results = emailService.sendBatch(List.of(
+                new OrderEmail(1L, "a@example.com", "shipped"),
+                new OrderEmail(2L, "invalido", "shipped"),
+                new OrderEmail(3L, "c@example.com", "shipped")));
+
+        assertThat(results).extracting(EmailResult::isSent).containsExactly(true, false, true);
+        assertThat(batchCalls.get()).isEqualTo(1);
+        assertThat(singleCalls.get()).isEqualTo(3);
+    }
+}
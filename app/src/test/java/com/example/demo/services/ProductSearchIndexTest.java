@@ -0,0 +1,102 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.ProductSearchResult;
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Indice de busqueda sin Spring ni base de datos.
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.putCategory(1L, "Remeras");
+        index.putCategory(2L, "Calzas");
+        index.index(product(1, 1, "Camiseta Térmica", "camiseta-termica", "Tela dry-fit para entrenar", "19.99"));
+        index.index(product(2, 1, "Camiseta Oversize", "camiseta-oversize", "Algodon pesado", "34.50"));
+        index.index(product(3, 2, "Calza Compresion", "calza-compresion", "Para correr, con bolsillo para camiseta", "45.00"));
+        index.index(product(4, 2, "Short Running", "short-running", "Liviano", "120.00"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        ProductSearchResult result = search("camiseta");
+
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.items()).extracting(ProductSearchResult.Hit::id).containsExactly(1L, 2L, 3L);
+        assertThat(result.items().get(0).category().name()).isEqualTo("Remeras");
+    }
+
+    @Test
+    void matchesPrefixesAccentsAndOneTypo() {
+        assertThat(ids("cami ter")).containsExactly(1L);
+        assertThat(ids("TÉRMICA")).containsExactly(1L);
+        assertThat(ids("camsieta oversize")).containsExactly(2L);
+        assertThat(ids("runing")).containsExactly(4L);
+        assertThat(ids("zapatilla")).isEmpty();
+    }
+
+    @Test
+    void facetsIgnoreTheirOwnFilter() {
+        ProductSearchResult result = index.search("camiseta", List.of(1L), null, new BigDecimal("30"), null, 0, 20);
+
+        assertThat(result.items()).extracting(ProductSearchResult.Hit::id).containsExactly(1L);
+        // Categorias con el filtro de precio aplicado, pero no el de categoria
+        assertThat(result.categories()).extracting(ProductSearchResult.CategoryFacet::id).containsExactly(1L);
+        // Precios con el filtro de categoria aplicado, pero no el de precio
+        assertThat(result.prices()).extracting(ProductSearchResult.PriceFacet::count).containsExactly(1, 1, 0, 0, 0);
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.index(product(4, 2, "Short Trail", "short-trail", "Liviano", "120.00"));
+        assertThat(ids("running")).isEmpty();
+        assertThat(ids("trail")).containsExactly(4L);
+
+        index.remove(4L);
+        assertThat(ids("short")).isEmpty();
+    }
+
+    @Test
+    void paginatesRankedResults() {
+        ProductSearchResult first = index.search("", null, null, null, null, 0, 3);
+        ProductSearchResult second = index.search("", null, null, null, null, 1, 3);
+
+        assertThat(first.total()).isEqualTo(4);
+        assertThat(first.items()).extracting(ProductSearchResult.Hit::id).containsExactly(1L, 2L, 3L);
+        assertThat(second.items()).extracting(ProductSearchResult.Hit::id).containsExactly(4L);
+    }
+
+    private ProductSearchResult search(String q) {
+        return index.search(q, null, null, null, null, 0, 20);
+    }
+
+    private Object[] ids(String q) {
+        return search(q).items().stream().map(ProductSearchResult.Hit::id).toArray();
+    }
+
+    private static Product product(long id, long categoryId, String name, String slug, String description, String price) {
+        Category category = new Category();
+        category.setId(categoryId);
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(category);
+        product.setName(name);
+        product.setSlug(slug);
+        product.setDescription(description);
+        product.setBasePrice(new BigDecimal(price));
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,6 @@
+-- Filas de una base en produccion antes de las migraciones
+INSERT INTO users (name, email, password_hash, role) VALUES ('Cliente', 'cliente@example.com', 'x', 'customer');
+INSERT INTO categories (name, slug) VALUES ('Camisetas', 'camisetas');
+INSERT INTO products (category_id, name, base_price, active) VALUES (1, 'Camiseta', 29.99, true);
+INSERT INTO orders (user_id, status, grand_total) VALUES (1, 'pending', 29.99);
+INSERT INTO order_items (order_id, product_variant_id, quantity, unit_price, line_total) VALUES (1, 1, 1, 29.99, 29.99);
@@ -0,0 +1,49 @@
+-- Esquema que dejaba ddl-auto=update con las entidades originales (antes de Flyway):
+-- ids identity, sin defaults y con status nullable. Difiere del schema.sql original (V1)
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at TIMESTAMP(6),
+    email VARCHAR(255) NOT NULL UNIQUE,
+    name VARCHAR(255) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    phone VARCHAR(255),
+    role VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE categories (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    description VARCHAR(255),
+    name VARCHAR(255),
+    parent_id BIGINT,
+    slug VARCHAR(255)
+);
+
+CREATE TABLE products (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    active BOOLEAN,
+    base_price NUMERIC(38, 2),
+    created_at TIMESTAMP(6),
+    description VARCHAR(255),
+    name VARCHAR(255),
+    slug VARCHAR(255),
+    category_id BIGINT NOT NULL REFERENCES categories(id)
+);
+
+CREATE TABLE orders (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at TIMESTAMP(6),
+    grand_total NUMERIC(38, 2),
+    shipping_address_id BIGINT,
+    status VARCHAR(255),
+    user_id BIGINT
+);
+
+CREATE TABLE order_items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    line_total NUMERIC(38, 2),
+    product_variant_id BIGINT,
+    quantity INTEGER,
+    unit_price NUMERIC(38, 2),
+    order_id BIGINT NOT NULL REFERENCES orders(id)
+);
@@ -0,0 +1,96 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga HTTP de lazo cerrado: cada cliente pide, espera la respuesta y vuelve a
+ * pedir, con un id al azar del archivo. Los primeros 3 s son de calentamiento y
+ * no se cuentan. Se corre sin compilar, con Java 21 (los clientes son hilos virtuales):
+ *
+ * <pre>
+ * java HttpLoad.java "http://localhost:8080/api/orders/{id}" ids.txt 200 20
+ * </pre>
+ */
+public class HttpLoad {
+
+    private static final long WARMUP_SECONDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4) {
+            System.err.println("Uso: java HttpLoad.java <url con {id}> <archivo de ids> <clientes> <segundos>");
+            System.exit(2);
+        }
+        String url = args[0];
+        long[] ids = Files.readAllLines(Path.of(args[1])).stream()
+                .map(String::trim).filter(line -> !line.isEmpty())
+                .mapToLong(Long::parseLong).toArray();
+        int clients = Integer.parseInt(args[2]);
+        int seconds = Integer.parseInt(args[3]);
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Map<String, AtomicLong> results = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                pool.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(url.replace("{id}", String.valueOf(id))))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        String result;
+                        try {
+                            result = String.valueOf(http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+                        } catch (Exception e) {
+                            result = e.getClass().getSimpleName();
+                        }
+                        if (start < measureFrom) {
+                            continue;
+                        }
+                        results.computeIfAbsent(result, k -> new AtomicLong()).incrementAndGet();
+                        if (result.equals("200")) {
+                            latencies.add(System.nanoTime() - start);
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        long errors = results.entrySet().stream()
+                .filter(e -> !e.getKey().equals("200"))
+                .mapToLong(e -> e.getValue().get()).sum();
+        System.out.printf(Locale.ROOT, "clientes=%d ok=%d errores=%d rps=%.0f p50=%.0fms p95=%.0fms p99=%.0fms max=%.0fms %s%n",
+                clients, sorted.length, errors, sorted.length / (double) seconds,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), percentile(sorted, 100), results);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p / 100 * sorted.length) - 1));
+        return sorted[index] / 1e6;
+    }
+}
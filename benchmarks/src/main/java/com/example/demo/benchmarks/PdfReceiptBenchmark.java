@@ -0,0 +1,43 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.models.Order;
+import com.example.demo.services.PdfService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de renderizar un recibo segun la cantidad de items (sin cache).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfReceiptBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int items;
+
+    private PdfService pdfService;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        // Sin cache y con un solo hilo de render: se mide solo generateOrderReceipt
+        pdfService = new PdfService(new SimpleMeterRegistry(), 1, 1, 0);
+        order = SyntheticData.order(42, items);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pdfService.shutdown();
+    }
+
+    @Benchmark
+    public byte[] generateOrderReceipt() {
+        return pdfService.generateOrderReceipt(order);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.dto.ProductSearchResult;
+import com.example.demo.models.Category;
+import com.example.demo.models.Product;
+import com.example.demo.services.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de ProductSearchIndex.search sobre un catalogo sintetico de 100k productos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] TYPES = {"camiseta", "calza", "short", "buzo", "campera", "musculosa",
+            "top", "medias", "gorra", "mochila", "jogger", "chaleco", "remera", "bermuda", "zapatilla"};
+    private static final String[] ADJECTIVES = {"termica", "oversize", "compresion", "liviana", "dry-fit",
+            "running", "training", "crossfit", "yoga", "ciclismo", "trail", "reflectiva", "sin costuras"};
+    private static final String[] WORDS = {"algodon", "poliester", "elastano", "transpirable", "secado",
+            "rapido", "bolsillo", "cierre", "capucha", "ajustable", "costura", "plana", "tela", "suave",
+            "resistente", "entrenamiento", "intenso", "verano", "invierno", "negro", "azul", "gris", "rojo"};
+
+    @Param({"100000"})
+    public int products;
+
+    @Param({"camiseta", "cami ter", "compresoin", ""})
+    public String query;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new ProductSearchIndex();
+        for (long c = 1; c <= 20; c++) {
+            index.putCategory(c, "Categoria " + c);
+        }
+        for (int i = 1; i <= products; i++) {
+            Category category = new Category();
+            category.setId(1L + random.nextInt(20));
+            String name = pick(random, TYPES) + " " + pick(random, ADJECTIVES) + " " + i;
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 12; w++) {
+                description.append(pick(random, WORDS)).append(' ');
+            }
+            Product product = new Product();
+            product.setId((long) i);
+            product.setCategory(category);
+            product.setName(name);
+            product.setSlug(name.replace(' ', '-'));
+            product.setDescription(description.toString());
+            product.setBasePrice(BigDecimal.valueOf(500 + random.nextInt(25_000), 2));
+            product.setActive(random.nextInt(10) != 0);
+            index.index(product);
+        }
+    }
+
+    @Benchmark
+    public ProductSearchResult search() {
+        return index.search(query, null, null, null, true, 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchResult searchFiltered() {
+        return index.search(query, List.of(3L), new BigDecimal("20"), new BigDecimal("100"), true, 0, 20);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.models.Category;
+import com.example.demo.models.Order;
+import com.example.demo.models.OrderItem;
+import com.example.demo.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entidades en memoria para los benchmarks (sin base de datos).
+ */
+final class SyntheticData {
+
+    private static final String[] STATUSES = {"pending", "processing", "shipped", "delivered", "cancelled"};
+
+    private SyntheticData() {
+    }
+
+    static Order order(long id, int itemCount) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(1000 + id);
+        order.setStatus(STATUSES[(int) (id % STATUSES.length)]);
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(id * 1000 + i);
+            item.setProductVariantId(10_000L + i);
+            item.setQuantity(1 + i % 3);
+            item.setUnitPrice(new BigDecimal("19.99"));
+            item.setLineTotal(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            total = total.add(item.getLineTotal());
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setGrandTotal(total);
+        return order;
+    }
+
+    static List<Order> orders(int count, int itemsPerOrder) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(order(i + 1, itemsPerOrder));
+        }
+        return orders;
+    }
+
+    static List<Product> products(int count) {
+        List<Category> categories = new ArrayList<>();
+        for (long c = 1; c <= 8; c++) {
+            Category category = new Category();
+            category.setId(c);
+            category.setName("Categoria " + c);
+            category.setSlug("categoria-" + c);
+            category.setDescription("Descripcion de la categoria " + c);
+            categories.add(category);
+        }
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setCategory(categories.get(i % categories.size()));
+            product.setName("Producto deportivo " + i);
+            product.setSlug("producto-deportivo-" + i);
+            product.setDescription("Prenda tecnica para entrenamiento de alta intensidad, modelo " + i);
+            product.setBasePrice(new BigDecimal("29.99"));
+            product.setActive(i % 10 != 0);
+            products.add(product);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Armado del HTML del correo. Vive en el paquete de EmailService porque
+ * buildEmailHtml no es publico.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailHtmlBenchmark {
+
+    @Param({"pending", "shipped", "unknown"})
+    public String status;
+
+    private EmailService emailService;
+    private long orderId;
+
+    @Setup
+    public void setUp() {
+        // Nunca hace llamadas HTTP: solo se usa para armar el HTML
+        emailService = new EmailService(new RestTemplateBuilder(), new SimpleMeterRegistry(), "http://localhost:0", 1000, 1000);
+    }
+
+    @Benchmark
+    public String buildEmailHtml() {
+        return emailService.buildEmailHtml(++orderId, status);
+    }
+}
@@ -0,0 +1,53 @@
+#!/bin/sh
+# ============================================
+# Tiempo hasta la primera peticion
+# ============================================
+# Arranca la app con el comando dado, consulta /api/categories (el healthcheck
+# de Railway) hasta que responde 200 y muestra cuanto tardo; repite N veces.
+#
+#   docker/measure-startup.sh 5 java -jar app/target/gymwear-shop-api-0.0.1-SNAPSHOT.jar
+#   docker/measure-startup.sh 5 docker run --rm -p 8080:8080 -e DATABASE_URL=... gymwear-shop
+#
+# Variables: PORT (8080), URL (http://localhost:$PORT/api/categories), TIMEOUT_S (120)
+
+RUNS=${1:?uso: measure-startup.sh <veces> <comando...>}
+shift
+PORT=${PORT:-8080}
+URL=${URL:-http://localhost:$PORT/api/categories}
+TIMEOUT_S=${TIMEOUT_S:-120}
+
+now_ms() {
+    date +%s%3N
+}
+
+total=0
+i=1
+while [ "$i" -le "$RUNS" ]; do
+    start=$(now_ms)
+    "$@" >/tmp/measure-startup.log 2>&1 &
+    pid=$!
+
+    elapsed=""
+    while [ $(( $(now_ms) - start )) -lt $(( TIMEOUT_S * 1000 )) ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "la app termino antes de responder, ver /tmp/measure-startup.log" >&2
+            exit 1
+        fi
+        if [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL")" = "200" ]; then
+            elapsed=$(( $(now_ms) - start ))
+            break
+        fi
+        sleep 0.05
+    done
+
+    kill "$pid" 2>/dev/null
+    wait "$pid" 2>/dev/null
+    if [ -z "$elapsed" ]; then
+        echo "sin respuesta de $URL en ${TIMEOUT_S}s" >&2
+        exit 1
+    fi
+    echo "corrida $i: ${elapsed} ms"
+    total=$(( total + elapsed ))
+    i=$(( i + 1 ))
+done
+echo "promedio: $(( total / RUNS )) ms"
@@ -0,0 +1,4 @@
+#!/bin/sh
+# Permite que db-replica copie la base y siga el WAL (solo corre con el volumen vacio)
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -23,6 +23,6 @@ start "Frontend Angular" cmd /k "cd /d %~dp0app\frontend && npm start"
 echo.
 echo [4/4] Iniciando Backend...
 cd app
-call .\mvnw spring-boot:run
+call .\mvnw spring-boot:run -Dspring-boot.run.profiles=demo
 
 pause